@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.*;
+import org.openjdk.jmh.annotations.*;
+import org.violetlib.util.CleaningService;
+
+/**
+  Measure the registration of cleaning actions, with explicit cleaning and with cleaning after collection.
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CleaningServiceBenchmark
+{
+    private static final @NotNull Runnable ACTION = () -> {};
+
+    @Benchmark
+    public void createAndClean()
+    {
+        CleaningService.create(new Object(), ACTION).clean();
+    }
+
+    @Benchmark
+    public @NotNull CleaningService.Cleanable createAndCollect()
+    {
+        return CleaningService.create(new Object(), ACTION);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void createAndCleanContended()
+    {
+        CleaningService.create(new Object(), ACTION).clean();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.*;
+import org.openjdk.jmh.annotations.*;
+import org.violetlib.util.ExtensionBundle;
+import org.violetlib.util.ExtensionCache;
+import org.violetlib.util.Extensible;
+import org.violetlib.util.Extensions;
+
+/**
+  Measure extension lookup: an object that implements the extension directly, an object that delegates through a
+  chain of extensible objects, and the same chain behind an extension cache.
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExtensionsBenchmark
+{
+    public interface A {}
+    public interface B {}
+    public interface C {}
+
+    private Object direct;
+    private Object delegated;
+    private Object cached;
+
+    @Setup
+    public void setup()
+    {
+        direct = new Target();
+        delegated = new Delegator(new Delegator(new Delegator(new Target())));
+        cached = new CachingDelegator(new Delegator(new Delegator(new Target())));
+    }
+
+    @Benchmark
+    public @Nullable Object getExtensionDirect()
+    {
+        return Extensions.getExtension(direct, B.class);
+    }
+
+    @Benchmark
+    public @Nullable Object getExtensionDelegated()
+    {
+        return Extensions.getExtension(delegated, B.class);
+    }
+
+    @Benchmark
+    public @Nullable Object getExtensionCached()
+    {
+        return Extensions.getExtension(cached, B.class);
+    }
+
+    @Benchmark
+    public boolean supportsAnyDelegated()
+    {
+        return Extensions.supportsAny(delegated, Runnable.class, Comparable.class, C.class);
+    }
+
+    @Benchmark
+    public @NotNull ExtensionBundle resolveDelegated()
+    {
+        return Extensions.resolve(delegated, A.class, B.class, C.class, Runnable.class);
+    }
+
+    private static final class Target
+      implements A, B, C
+    {
+    }
+
+    private static final class Delegator
+      implements Extensible
+    {
+        private final @NotNull Object delegate;
+
+        Delegator(@NotNull Object delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> @Nullable T getExtension(@NotNull Class<T> c)
+        {
+            return Extensions.getExtension(delegate, c);
+        }
+
+        @Override
+        public @Nullable Object @NotNull [] getExtensions(@NotNull Class<?> @NotNull [] cs)
+        {
+            ExtensionBundle b = Extensions.resolve(delegate, cs);
+            Object[] result = new Object[cs.length];
+            for (int i = 0; i < cs.length; i++) {
+                result[i] = b.getExtension(i);
+            }
+            return result;
+        }
+    }
+
+    private static final class CachingDelegator
+      implements Extensible
+    {
+        private final @NotNull Object delegate;
+        private final @NotNull ExtensionCache extensions = ExtensionCache.create(this::findExtension);
+
+        CachingDelegator(@NotNull Object delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public <T> @Nullable T getExtension(@NotNull Class<T> c)
+        {
+            return extensions.getExtension(c);
+        }
+
+        private <T> @Nullable T findExtension(@NotNull Class<T> c)
+        {
+            return Extensions.getExtension(delegate, c);
+        }
+    }
+}
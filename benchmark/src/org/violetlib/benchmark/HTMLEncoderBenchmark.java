@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.benchmark;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.*;
+import org.openjdk.jmh.annotations.*;
+import org.violetlib.util.HTMLEncoder;
+
+/**
+  Compare {@link HTMLEncoder} with the encoders that preceded it, on ASCII text that rarely needs escaping and on text
+  that is mostly non-ASCII. The legacy encoder allocates a string for each character. The per-character encoder
+  appends each character or character reference directly to the destination without allocating. It is the
+  immediate predecessor of {@link HTMLEncoder}.
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HTMLEncoderBenchmark
+{
+    @Param({"ascii", "nonascii"})
+    public String content;
+
+    @Param({"64", "4096"})
+    public int length;
+
+    private String text;
+    private StringBuilder sb;
+
+    @Setup
+    public void setup()
+    {
+        Random r = new Random(42);
+        StringBuilder b = new StringBuilder(length);
+        while (b.length() < length) {
+            int n = r.nextInt(100);
+            if (content.equals("ascii")) {
+                // mostly letters and spaces, with an occasional meta character
+                b.append(n < 2 ? '<' : n < 4 ? '&' : n < 18 ? ' ' : (char) ('a' + r.nextInt(26)));
+            } else {
+                // mostly accented Latin and CJK characters, with some ASCII
+                b.append(n < 40 ? (char) (0xE0 + r.nextInt(32)) : n < 80 ? (char) (0x4E00 + r.nextInt(2000))
+                  : (char) ('a' + r.nextInt(26)));
+            }
+        }
+        text = b.toString();
+        sb = new StringBuilder(length * 8);
+    }
+
+    @Benchmark
+    public @NotNull String legacy()
+    {
+        return LegacyEncoder.encodeAsHTML(text);
+    }
+
+    @Benchmark
+    public @NotNull String perCharacter()
+      throws IOException
+    {
+        StringBuilder b = new StringBuilder(PerCharacterEncoder.encodedLengthAsHTML(text));
+        PerCharacterEncoder.encodeAsHTML(b, text);
+        return b.toString();
+    }
+
+    @Benchmark
+    public int perCharacterIntoBuilder()
+      throws IOException
+    {
+        sb.setLength(0);
+        PerCharacterEncoder.encodeAsHTML(sb, text);
+        return sb.length();
+    }
+
+    @Benchmark
+    public @NotNull String encoder()
+    {
+        return HTMLEncoder.encode(text);
+    }
+
+    @Benchmark
+    public int encoderIntoBuilder()
+    {
+        sb.setLength(0);
+        HTMLEncoder.encode(text, sb);
+        return sb.length();
+    }
+
+    /**
+      A copy of the encoder formerly used by FormattedMessageSupport.
+    */
+
+    private static final class LegacyEncoder
+    {
+        static @NotNull String encodeAsHTML(@NotNull String s)
+        {
+            if (s.isEmpty()) {
+                return "";
+            }
+
+            StringBuilder sb = new StringBuilder();
+            int len = s.length();
+
+            boolean leadingSpace = true;
+
+            for (int i = 0; i < len; i++) {
+                char ch = s.charAt(i);
+
+                if (leadingSpace) {
+                    if (ch == ' ') {
+                        sb.append("&nbsp;");
+                        continue;
+                    }
+                    leadingSpace = false;
+                }
+
+                String rs = encodeAsHTML(ch);
+                sb.append(rs);
+            }
+
+            return sb.toString();
+        }
+
+        static @NotNull String encodeAsHTML(char ch)
+        {
+            int code = (int) ch;
+
+            if (isHTMLMetaCharacter(ch)) {
+                return "&#" + code + ";";
+            }
+
+            if (ch == '\n' || ch == '\r') {
+                return "\n";
+            }
+
+            if (code < 32 || code >= 128) {
+                return "&#" + code + ";";
+            }
+
+            return "" + ch;
+        }
+
+        static boolean isHTMLMetaCharacter(char ch)
+        {
+            return ch == '<' || ch == '>' || ch == '&' || ch == '"';
+        }
+    }
+
+    /**
+      A copy of the allocation-free per-character encoder that FormattedMessageSupport used before HTMLEncoder.
+    */
+
+    private static final class PerCharacterEncoder
+    {
+        static void encodeAsHTML(@NotNull Appendable a, @NotNull CharSequence s)
+          throws IOException
+        {
+            int len = s.length();
+            int i = 0;
+            while (i < len && s.charAt(i) == ' ') {
+                a.append("&nbsp;");
+                i++;
+            }
+            for (; i < len; i++) {
+                encodeAsHTML(a, s.charAt(i));
+            }
+        }
+
+        static void encodeAsHTML(@NotNull Appendable a, char ch)
+          throws IOException
+        {
+            int code = (int) ch;
+
+            if (isHTMLMetaCharacter(ch)) {
+                appendCharacterReference(a, code);
+            } else if (ch == '\n' || ch == '\r') {
+                a.append('\n');
+            } else if (code < 32 || code >= 128) {
+                appendCharacterReference(a, code);
+            } else {
+                a.append(ch);
+            }
+        }
+
+        static int encodedLengthAsHTML(@NotNull CharSequence s)
+        {
+            int len = s.length();
+            int length = 0;
+            int i = 0;
+            while (i < len && s.charAt(i) == ' ') {
+                length += 6;
+                i++;
+            }
+            for (; i < len; i++) {
+                char ch = s.charAt(i);
+                int code = (int) ch;
+                if (isHTMLMetaCharacter(ch) || (code < 32 && ch != '\n' && ch != '\r') || code >= 128) {
+                    length += 3 + digitCount(code);
+                } else {
+                    length++;
+                }
+            }
+            return length;
+        }
+
+        private static void appendCharacterReference(@NotNull Appendable a, int code)
+          throws IOException
+        {
+            a.append('&');
+            a.append('#');
+            for (int divisor = powerOfTen(digitCount(code) - 1); divisor > 0; divisor /= 10) {
+                a.append((char) ('0' + code / divisor % 10));
+            }
+            a.append(';');
+        }
+
+        private static int digitCount(int code)
+        {
+            return code < 10 ? 1 : code < 100 ? 2 : code < 1000 ? 3 : code < 10000 ? 4 : 5;
+        }
+
+        private static int powerOfTen(int n)
+        {
+            int result = 1;
+            while (n-- > 0) {
+                result *= 10;
+            }
+            return result;
+        }
+
+        private static boolean isHTMLMetaCharacter(char ch)
+        {
+            return ch == '<' || ch == '>' || ch == '&' || ch == '"';
+        }
+    }
+}
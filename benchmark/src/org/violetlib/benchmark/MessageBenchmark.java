@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.*;
+import org.openjdk.jmh.annotations.*;
+import org.violetlib.util.FormattedMessageSupport;
+
+/**
+  Measure the construction of formatted messages, as plain text and as HTML.
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark
+{
+    @Param({"false", "true"})
+    public boolean useHTML;
+
+    private final @NotNull String template = "Unexpected token %q in %s at line %s: expected %q";
+    private final @NotNull Object @NotNull [] args = { "<identifier>", "Main.java", 42, "a \"quoted\" name" };
+    private final @NotNull StringBuilder sb = new StringBuilder(256);
+
+    @Benchmark
+    public @NotNull String constructMessage()
+    {
+        return FormattedMessageSupport.constructMessage(useHTML, template, args);
+    }
+
+    @Benchmark
+    public int constructMessageIntoBuilder()
+    {
+        sb.setLength(0);
+        FormattedMessageSupport.constructMessage(useHTML, template, args, sb);
+        return sb.length();
+    }
+}
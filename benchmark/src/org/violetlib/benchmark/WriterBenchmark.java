@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.benchmark;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.*;
+import org.openjdk.jmh.annotations.*;
+import org.violetlib.io.VStringWriter;
+import org.violetlib.io.VULineWriter;
+import org.violetlib.io.VULineWritingConverter;
+import org.violetlib.io.VUWriter;
+import org.violetlib.io.VUWriterWrapper;
+import org.violetlib.io.WriterFromVUWriter;
+
+/**
+  Measure the writer adapters. The sinks discard the text, so that the cost of the adapter dominates.
+*/
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriterBenchmark
+{
+    @Param({"16", "1024"})
+    public int length;
+
+    private String text;
+    private char[] chars;
+
+    private VUWriter wrapper;
+    private Writer writerFromVUWriter;
+    private VUWriter lineConverter;
+
+    @Setup
+    public void setup()
+    {
+        // Lines of about 60 characters, so that the line converter has work to do
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(sb.length() % 60 == 59 ? '\n' : (char) ('a' + sb.length() % 26));
+        }
+        text = sb.toString();
+        chars = text.toCharArray();
+
+        wrapper = VUWriterWrapper.create(new NullWriter());
+        writerFromVUWriter = WriterFromVUWriter.create(new NullVUWriter());
+        lineConverter = VULineWritingConverter.create(new NullLineWriter());
+    }
+
+    @Benchmark
+    public void wrapperString()
+    {
+        wrapper.write(text);
+    }
+
+    @Benchmark
+    public void wrapperChars()
+    {
+        wrapper.write(chars, 0, chars.length);
+    }
+
+    @Benchmark
+    public @NotNull String stringWriter()
+    {
+        VStringWriter w = VStringWriter.create();
+        w.write(text);
+        return w.toString();
+    }
+
+    @Benchmark
+    public void writerFromVUWriterString()
+      throws Exception
+    {
+        writerFromVUWriter.write(text);
+    }
+
+    @Benchmark
+    public void writerFromVUWriterAppend()
+      throws Exception
+    {
+        writerFromVUWriter.append(text, 0, text.length());
+    }
+
+    @Benchmark
+    public void lineConverterString()
+    {
+        lineConverter.write(text);
+    }
+
+    @Benchmark
+    public void lineConverterChars()
+    {
+        lineConverter.write(chars, 0, chars.length);
+    }
+
+    private static final class NullWriter
+      extends Writer
+    {
+        @Override
+        public void write(int c)
+        {
+        }
+
+        @Override
+        public void write(char @NotNull [] cbuf, int off, int len)
+        {
+        }
+
+        @Override
+        public void write(@NotNull String str, int off, int len)
+        {
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+    private static final class NullVUWriter
+      implements VUWriter
+    {
+        @Override
+        public void write(char ch)
+        {
+        }
+
+        @Override
+        public void write(@NotNull String s)
+        {
+        }
+
+        @Override
+        public void write(char @NotNull [] chars, int offset, int length)
+        {
+        }
+
+        @Override
+        public void write(@NotNull CharSequence s, int start, int end)
+        {
+        }
+
+        @Override
+        public void newLine()
+        {
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+    }
+
+    private static final class NullLineWriter
+      implements VULineWriter
+    {
+        @Override
+        public void writeln(@NotNull String s)
+        {
+        }
+
+        @Override
+        public void writeln(@NotNull CharSequence s, int start, int end)
+        {
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jetbrains.annotations.*;
+
+/**
+  A temporary file that is created in the same directory as a target file. When committed, the temporary file is forced
+  to the storage device and then atomically renamed to replace the target file. This class supports the file based
+  transactional output streams and writers.
+  <p>
+  The temporary file is created using the default file permissions, not the restrictive permissions used by
+  {@link Files#createTempFile}, so that the published file has the same permissions as a file created directly.
+*/
+
+/* package private */ final class AtomicFileTarget
+{
+    /**
+      Create a temporary file for the specified target file.
+
+      @param target The file to be replaced when the temporary file is committed.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull AtomicFileTarget create(@NotNull Path target)
+      throws IOException
+    {
+        Path absoluteTarget = target.toAbsolutePath();
+        Path directory = absoluteTarget.getParent();
+        Path name = absoluteTarget.getFileName();
+        if (directory == null || name == null) {
+            throw new IOException("Invalid target file: " + target);
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            String tempName = "." + name + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp";
+            Path temp = directory.resolve(tempName);
+            try {
+                FileChannel channel = FileChannel.open(temp,
+                  StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                return new AtomicFileTarget(absoluteTarget, directory, temp, channel);
+            } catch (FileAlreadyExistsException ex) {
+                if (attempt >= 100) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private final @NotNull Path target;
+    private final @NotNull Path directory;
+    private final @NotNull Path temp;
+    private final @NotNull FileChannel channel;
+
+    private AtomicFileTarget(@NotNull Path target,
+                             @NotNull Path directory,
+                             @NotNull Path temp,
+                             @NotNull FileChannel channel)
+    {
+        this.target = target;
+        this.directory = directory;
+        this.temp = temp;
+        this.channel = channel;
+    }
+
+    public @NotNull Path getTarget()
+    {
+        return target;
+    }
+
+    /**
+      Return the directory that contains the target file.
+    */
+
+    public @NotNull Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+      Return the channel used to write the temporary file.
+    */
+
+    public @NotNull FileChannel getChannel()
+    {
+        return channel;
+    }
+
+    /**
+      Write the remaining contents of a buffer to the temporary file.
+    */
+
+    public void write(@NotNull ByteBuffer b)
+      throws IOException
+    {
+        while (b.hasRemaining()) {
+            channel.write(b);
+        }
+    }
+
+    /**
+      Force the temporary file to the storage device, replace the target file with the temporary file, and force the
+      updated directory entry to the storage device. If the operation fails, the temporary file is deleted.
+
+      @throws IOException if the operation failed.
+    */
+
+    public void commit()
+      throws IOException
+    {
+        prepare();
+        publish();
+        syncDirectory(directory);
+    }
+
+    /**
+      The first phase of a commit: force the temporary file to the storage device and close it. If the operation fails,
+      the temporary file is deleted.
+
+      @throws IOException if the operation failed.
+    */
+
+    public void prepare()
+      throws IOException
+    {
+        try {
+            channel.force(true);
+            channel.close();
+        } catch (IOException ex) {
+            abort();
+            throw ex;
+        }
+    }
+
+    /**
+      The second phase of a commit: replace the target file with the prepared temporary file. The directory is not
+      forced to the storage device. If the operation fails, the temporary file is deleted.
+
+      @throws IOException if the operation failed.
+    */
+
+    public void publish()
+      throws IOException
+    {
+        try {
+            move(temp, target);
+        } catch (IOException ex) {
+            abort();
+            throw ex;
+        }
+    }
+
+    /**
+      Release the temporary file without updating the target file.
+    */
+
+    public void abort()
+    {
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignore) {
+        }
+    }
+
+    private static void move(@NotNull Path source, @NotNull Path target)
+      throws IOException
+    {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+      Force a directory to the storage device, so that a renamed file is not lost after a crash. Not all platforms
+      permit a directory to be opened; on those platforms, this method has no effect.
+    */
+
+    public static void syncDirectory(@NotNull Path directory)
+    {
+        try (FileChannel dc = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dc.force(true);
+        } catch (IOException ignore) {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.util.Extensions;
+
+/**
+  An optional extension of an output stream that accepts data directly from a channel. Output streams that write to a
+  file can use this extension to transfer data without copying it through a Java byte array; when the source is a file,
+  the transfer may be performed by the operating system without copying the data into user space.
+  <p>
+  This extension is discovered using {@link Extensions#getExtension}. The {@link #transfer} method uses the extension if
+  it is supported and copies the data otherwise.
+  <p>
+  The source channel must be in blocking mode.
+*/
+
+public interface ChannelTransferSupport
+{
+    /**
+      Transfer data from a channel to an output stream, using the {@code ChannelTransferSupport} extension of the output
+      stream if it is supported.
+
+      @param source The channel that supplies the data. Data is read starting at the current position of the channel.
+      @param target The output stream.
+      @param count The maximum number of bytes to transfer.
+      @return the number of bytes transferred, which is less than {@code count} only if the end of the source was
+      reached.
+      @throws IOException if an error occurs reading or writing the data.
+    */
+
+    static long transfer(@NotNull ReadableByteChannel source, @NotNull VOutputStream target, long count)
+      throws IOException
+    {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+
+        ChannelTransferSupport ts = Extensions.getExtension(target, ChannelTransferSupport.class);
+        if (ts != null) {
+            return ts.transferFrom(source, count);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 8192));
+        long total = 0;
+        while (total < count) {
+            buffer.clear();
+            if (count - total < buffer.capacity()) {
+                buffer.limit((int) (count - total));
+            }
+            int n = source.read(buffer);
+            if (n < 0) {
+                break;
+            }
+            target.write(buffer.array(), 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+      Transfer data from a channel. Data is read starting at the current position of the channel, and the position of
+      the channel is advanced by the number of bytes transferred.
+
+      @param source The channel that supplies the data.
+      @param count The maximum number of bytes to transfer.
+      @return the number of bytes transferred, which is less than {@code count} only if the end of the source was
+      reached.
+      @throws IOException if an error occurs reading or writing the data.
+      @throws IllegalStateException if the output stream has been terminated.
+    */
+
+    long transferFrom(@NotNull ReadableByteChannel source, long count)
+      throws IOException;
+
+    /**
+      Transfer data from a file. The position of the file channel is not changed.
+
+      @param source The file channel that supplies the data.
+      @param position The position in the file of the first byte to transfer.
+      @param count The maximum number of bytes to transfer.
+      @return the number of bytes transferred, which is less than {@code count} only if the end of the file was
+      reached.
+      @throws IOException if an error occurs reading or writing the data.
+      @throws IllegalStateException if the output stream has been terminated.
+    */
+
+    long transferFrom(@NotNull FileChannel source, long position, long count)
+      throws IOException;
+}
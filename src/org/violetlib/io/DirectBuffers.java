@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.nio.ByteBuffer;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.annotations.NoInstances;
+
+/**
+  A per-thread cache of direct byte buffers. Direct buffers are expensive to allocate and are released only by the
+  garbage collector, so short lived output streams reuse them rather than allocating a new buffer each time.
+*/
+
+/* package private */ final @NoInstances class DirectBuffers
+{
+    private DirectBuffers()
+    {
+        throw new AssertionError("DirectBuffers may not be instantiated");
+    }
+
+    private static final @NotNull ThreadLocal<ByteBuffer> cache = new ThreadLocal<>();
+
+    /**
+      Obtain a cleared direct buffer of the specified capacity.
+    */
+
+    public static @NotNull ByteBuffer acquire(int capacity)
+    {
+        ByteBuffer b = cache.get();
+        if (b != null && b.capacity() == capacity) {
+            cache.set(null);
+            return b;
+        }
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+      Return a buffer for possible reuse. The buffer must not be used by the caller after it has been released.
+    */
+
+    public static void release(@NotNull ByteBuffer b)
+    {
+        if (b.isDirect()) {
+            b.clear();
+            cache.set(b);
+        }
+    }
+
+    /**
+      Copy as much of the remaining contents of the source buffer as will fit in the target buffer.
+    */
+
+    public static void putAvailable(@NotNull ByteBuffer target, @NotNull ByteBuffer source)
+    {
+        if (source.remaining() <= target.remaining()) {
+            target.put(source);
+        } else {
+            int limit = source.limit();
+            source.limit(source.position() + target.remaining());
+            try {
+                target.put(source);
+            } finally {
+                source.limit(limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+import org.jetbrains.annotations.*;
+
+/**
+  A transactional output stream that creates or replaces a file.
+  <p>
+  The contents are written through a direct buffer to a temporary file in the same directory as the target file. When
+  the output stream is committed, the temporary file is forced to the storage device and atomically renamed to replace
+  the target file. Thus, after a crash, the target file contains either its previous contents or the new contents,
+  never a partially written file. If the output stream is aborted, the temporary file is deleted. If writing the
+  temporary file fails, the output stream is aborted.
+  <p>
+  This output stream supports the {@link ChannelTransferSupport} extension. A transfer from a file uses
+  {@link FileChannel#transferTo}, which allows the operating system to copy the data directly.
+  <p>
+  This class is not thread safe.
+*/
+
+public final class FileTransactionalOutputStream
+  implements TransactionalOutputStream, ChannelTransferSupport
+{
+    /**
+      The default size of the buffer used to write the temporary file.
+    */
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+      Create a transactional output stream for a file.
+
+      @param target The file to be created or replaced when the output stream is committed.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull FileTransactionalOutputStream create(@NotNull Path target)
+      throws IOException
+    {
+        return new FileTransactionalOutputStream(target, DEFAULT_BUFFER_SIZE, null);
+    }
+
+    /**
+      Create a transactional output stream for a file.
+
+      @param target The file to be created or replaced when the output stream is committed.
+      @param bufferSize The size of the buffer used to write the temporary file.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull FileTransactionalOutputStream create(@NotNull Path target, int bufferSize)
+      throws IOException
+    {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        return new FileTransactionalOutputStream(target, bufferSize, null);
+    }
+
+    /**
+      Create a transactional output stream for a file whose commit is performed as part of a batch of commits.
+
+      @param target The file to be created or replaced when the output stream is committed.
+      @param committer The group committer that performs the commit.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull FileTransactionalOutputStream create(@NotNull Path target,
+                                                                @NotNull GroupCommitter committer)
+      throws IOException
+    {
+        return new FileTransactionalOutputStream(target, DEFAULT_BUFFER_SIZE, committer);
+    }
+
+    private @Nullable AtomicFileTarget file;
+    private @Nullable ByteBuffer buffer;
+    private final @Nullable GroupCommitter committer;
+
+    private FileTransactionalOutputStream(@NotNull Path target, int bufferSize, @Nullable GroupCommitter committer)
+      throws IOException
+    {
+        this.file = AtomicFileTarget.create(target);
+        this.buffer = DirectBuffers.acquire(bufferSize);
+        this.committer = committer;
+    }
+
+    @Override
+    public void write(int b)
+      throws IOException
+    {
+        ByteBuffer buffer = check();
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len)
+      throws IOException
+    {
+        ByteBuffer buffer = check();
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (len >= buffer.capacity()) {
+            // A large write bypasses the buffer
+            drain();
+            writeFile(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void write(@NotNull ByteBuffer b)
+      throws IOException
+    {
+        ByteBuffer buffer = check();
+
+        if (b.remaining() >= buffer.capacity()) {
+            // A large write bypasses the buffer
+            drain();
+            writeFile(b);
+            return;
+        }
+
+        while (b.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            DirectBuffers.putAvailable(buffer, b);
+        }
+    }
+
+    @Override
+    public long transferFrom(@NotNull ReadableByteChannel source, long count)
+      throws IOException
+    {
+        ByteBuffer buffer = check();
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+
+        if (source instanceof FileChannel) {
+            FileChannel fc = (FileChannel) source;
+            long position = fc.position();
+            long total = transferFrom(fc, position, count);
+            fc.position(position + total);
+            return total;
+        }
+
+        // Read directly into the direct buffer
+        long total = 0;
+        while (total < count) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int limit = buffer.limit();
+            if (count - total < buffer.remaining()) {
+                buffer.limit(buffer.position() + (int) (count - total));
+            }
+            int n;
+            try {
+                n = source.read(buffer);
+            } finally {
+                buffer.limit(limit);
+            }
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public long transferFrom(@NotNull FileChannel source, long position, long count)
+      throws IOException
+    {
+        check();
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("Invalid position or count");
+        }
+        drain();
+        assert file != null;
+        FileChannel target = file.getChannel();
+        long total = 0;
+        try {
+            while (total < count) {
+                long n = source.transferTo(position + total, count - total, target);
+                if (n <= 0) {
+                    break;
+                }
+                total += n;
+            }
+        } catch (IOException ex) {
+            // The amount written to the temporary file is unknown
+            abort();
+            throw ex;
+        }
+        return total;
+    }
+
+    /**
+      Write any buffered contents to the temporary file. This method does not force the contents to the storage device
+      and does not make the contents visible in the target file.
+    */
+
+    @Override
+    public void flush()
+      throws IOException
+    {
+        check();
+        drain();
+    }
+
+    @Override
+    public void commit()
+      throws IOException
+    {
+        AtomicFileTarget f = file;
+        if (f != null) {
+            drain();
+            terminate();
+            if (committer != null) {
+                committer.commit(f);
+            } else {
+                f.commit();
+            }
+        }
+    }
+
+    @Override
+    public void abort()
+    {
+        AtomicFileTarget f = file;
+        if (f != null) {
+            terminate();
+            f.abort();
+        }
+    }
+
+    private void drain()
+      throws IOException
+    {
+        ByteBuffer buffer = this.buffer;
+        AtomicFileTarget f = file;
+        if (buffer != null && f != null && buffer.position() > 0) {
+            buffer.flip();
+            writeFile(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+      Write to the temporary file. If the write fails, the output stream is aborted, as the temporary file no longer
+      has the intended contents.
+    */
+
+    private void writeFile(@NotNull ByteBuffer b)
+      throws IOException
+    {
+        AtomicFileTarget f = file;
+        assert f != null;
+        try {
+            f.write(b);
+        } catch (IOException ex) {
+            abort();
+            throw ex;
+        }
+    }
+
+    private void terminate()
+    {
+        ByteBuffer buffer = this.buffer;
+        file = null;
+        this.buffer = null;
+        if (buffer != null) {
+            DirectBuffers.release(buffer);
+        }
+    }
+
+    private @NotNull ByteBuffer check()
+    {
+        if (buffer == null) {
+            throw new IllegalStateException("Output stream has been committed or aborted");
+        }
+        return buffer;
+    }
+}
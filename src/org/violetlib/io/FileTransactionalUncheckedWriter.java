@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.types.IORuntimeException;
+
+/**
+  A transactional writer that creates or replaces a text file and throws runtime exceptions. The behavior is otherwise
+  the same as {@link FileTransactionalWriter}.
+  <p>
+  This class is not thread safe.
+*/
+
+public final class FileTransactionalUncheckedWriter
+  implements TransactionalUncheckedWriter
+{
+    /**
+      Create a transactional writer for a file that is encoded using UTF-8.
+
+      @param target The file to be created or replaced when the writer is committed.
+      @throws IORuntimeException if the temporary file could not be created.
+    */
+
+    public static @NotNull FileTransactionalUncheckedWriter create(@NotNull Path target)
+      throws IORuntimeException
+    {
+        return create(target, StandardCharsets.UTF_8);
+    }
+
+    /**
+      Create a transactional writer for a file.
+
+      @param target The file to be created or replaced when the writer is committed.
+      @param charset The charset used to encode the text.
+      @throws IORuntimeException if the temporary file could not be created.
+    */
+
+    public static @NotNull FileTransactionalUncheckedWriter create(@NotNull Path target, @NotNull Charset charset)
+      throws IORuntimeException
+    {
+        try {
+            return new FileTransactionalUncheckedWriter(FileTransactionalWriter.create(target, charset));
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    private final @NotNull FileTransactionalWriter w;
+
+    private FileTransactionalUncheckedWriter(@NotNull FileTransactionalWriter w)
+    {
+        this.w = w;
+    }
+
+    @Override
+    public void write(char ch)
+      throws IORuntimeException
+    {
+        try {
+            w.write(ch);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void write(@NotNull String s)
+      throws IORuntimeException
+    {
+        try {
+            w.write(s);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void write(char @NotNull [] chars, int offset, int length)
+      throws IORuntimeException
+    {
+        try {
+            w.write(chars, offset, length);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void write(@NotNull CharSequence s, int start, int end)
+      throws IORuntimeException
+    {
+        try {
+            w.write(s, start, end);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void newLine()
+      throws IORuntimeException
+    {
+        try {
+            w.newLine();
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void flush()
+      throws IORuntimeException
+    {
+        try {
+            w.flush();
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void commit()
+      throws IORuntimeException
+    {
+        try {
+            w.commit();
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void abort()
+    {
+        w.abort();
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.jetbrains.annotations.*;
+
+/**
+  A transactional writer that creates or replaces a text file.
+  <p>
+  Text is encoded directly into a reusable buffer that is written to a temporary file in the same directory as the
+  target file. Newline characters are mapped to the platform line separator. When the writer is committed, the
+  temporary file is forced to the storage device and atomically renamed to replace the target file. If the writer is
+  aborted, the temporary file is deleted. If writing the temporary file fails, the writer is aborted.
+  <p>
+  This class is not thread safe.
+
+  @see FileTransactionalOutputStream
+*/
+
+public final class FileTransactionalWriter
+  implements TransactionalWriter
+{
+    /**
+      The default size of the buffer used to write the temporary file.
+    */
+
+    public static final int DEFAULT_BUFFER_SIZE = 32 * 1024;
+
+    /**
+      Create a transactional writer for a file that is encoded using UTF-8.
+
+      @param target The file to be created or replaced when the writer is committed.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull FileTransactionalWriter create(@NotNull Path target)
+      throws IOException
+    {
+        return new FileTransactionalWriter(target, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+      Create a transactional writer for a file.
+
+      @param target The file to be created or replaced when the writer is committed.
+      @param charset The charset used to encode the text.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull FileTransactionalWriter create(@NotNull Path target, @NotNull Charset charset)
+      throws IOException
+    {
+        return new FileTransactionalWriter(target, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+      Create a transactional writer for a file.
+
+      @param target The file to be created or replaced when the writer is committed.
+      @param charset The charset used to encode the text.
+      @param bufferSize The size of the buffer used to write the temporary file. A size too small to hold the
+      encoding of a surrogate pair is increased.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull FileTransactionalWriter create(@NotNull Path target,
+                                                          @NotNull Charset charset,
+                                                          int bufferSize)
+      throws IOException
+    {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        return new FileTransactionalWriter(target, charset, bufferSize);
+    }
+
+    private @Nullable AtomicFileTarget file;
+    private final @NotNull TextEncoder encoder;
+
+    private FileTransactionalWriter(@NotNull Path target, @NotNull Charset charset, int bufferSize)
+      throws IOException
+    {
+        AtomicFileTarget file = AtomicFileTarget.create(target);
+        this.file = file;
+
+        /*
+          A heap buffer is used because the charset encoders have a fast path for arrays. The file channel copies the
+          encoded bytes to a native buffer in a single operation.
+        */
+
+        ByteBuffer bytes = ByteBuffer.allocate(Math.max(bufferSize, TextEncoder.minimumBufferSize(charset)));
+        this.encoder = new TextEncoder(charset, bytes, bufferSize, this::writeFile);
+    }
+
+    @Override
+    public void write(char ch)
+      throws IOException
+    {
+        check();
+        encoder.write(ch);
+    }
+
+    @Override
+    public void write(@NotNull String s)
+      throws IOException
+    {
+        check();
+        encoder.write(s);
+    }
+
+    @Override
+    public void write(char @NotNull [] chars, int offset, int length)
+      throws IOException
+    {
+        check();
+        encoder.write(chars, offset, length);
+    }
+
+    @Override
+    public void write(@NotNull CharSequence s, int start, int end)
+      throws IOException
+    {
+        check();
+        encoder.write(s, start, end);
+    }
+
+    @Override
+    public void newLine()
+      throws IOException
+    {
+        check();
+        encoder.newLine();
+    }
+
+    /**
+      Write any buffered text to the temporary file. This method does not force the contents to the storage device
+      and does not make the contents visible in the target file.
+    */
+
+    @Override
+    public void flush()
+      throws IOException
+    {
+        check();
+        encoder.flush();
+    }
+
+    @Override
+    public void commit()
+      throws IOException
+    {
+        AtomicFileTarget f = file;
+        if (f != null) {
+            try {
+                encoder.finish();
+            } catch (Throwable ex) {
+                abort();
+                throw ex;
+            }
+            file = null;
+            f.commit();
+        }
+    }
+
+    @Override
+    public void abort()
+    {
+        AtomicFileTarget f = file;
+        if (f != null) {
+            file = null;
+            f.abort();
+        }
+    }
+
+    /**
+      Write encoded text to the temporary file. If the write fails, the writer is aborted, as the encoded text has
+      been lost.
+    */
+
+    private void writeFile(@NotNull ByteBuffer b)
+      throws IOException
+    {
+        AtomicFileTarget f = file;
+        assert f != null;
+        try {
+            f.write(b);
+        } catch (IOException ex) {
+            abort();
+            throw ex;
+        }
+    }
+
+    private void check()
+    {
+        if (file == null) {
+            throw new IllegalStateException("Writer has been committed or aborted");
+        }
+    }
+}
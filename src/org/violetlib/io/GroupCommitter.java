@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jetbrains.annotations.*;
+
+/**
+  Coordinates the commits of file based transactional output streams so that concurrent commits share the cost of
+  forcing directories to the storage device.
+  <p>
+  Each committing thread forces its own temporary file to the storage device and then joins the current batch. The
+  first thread to join a batch waits for the commit window to elapse, then renames all of the temporary files in the
+  batch (in the order they joined) and forces each affected directory once. All commits in the batch return when the
+  batch is complete. A commit that joins after the batch has closed is deferred to the next batch. Batches are
+  completed one at a time, in the order they were closed.
+  <p>
+  A group committer may be shared by any number of threads and output streams.
+
+  @see FileTransactionalOutputStream#create(Path, GroupCommitter)
+*/
+
+public final class GroupCommitter
+{
+    /**
+      Create a group committer.
+
+      @param window The time to wait for additional commits to join a batch. A zero window batches only those commits
+      that arrive while the previous batch is being completed.
+    */
+
+    public static @NotNull GroupCommitter create(@NotNull Duration window)
+    {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Invalid commit window: " + window);
+        }
+        return new GroupCommitter(window.toNanos());
+    }
+
+    private final long windowNanos;
+    private @Nullable Batch currentBatch;  // guarded by this
+    private final @NotNull Object publishLock = new Object();  // held while closing and completing a batch
+
+    private GroupCommitter(long windowNanos)
+    {
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+      Commit a temporary file as part of a batch.
+
+      @throws IOException if the commit failed, in which case the temporary file has been deleted.
+    */
+
+    /* package private */ void commit(@NotNull AtomicFileTarget f)
+      throws IOException
+    {
+        f.prepare();
+
+        Batch batch;
+        Entry entry = new Entry(f);
+        boolean isLeader;
+
+        synchronized (this) {
+            batch = currentBatch;
+            isLeader = batch == null;
+            if (isLeader) {
+                batch = new Batch();
+                currentBatch = batch;
+            }
+            batch.entries.add(entry);
+        }
+
+        if (isLeader) {
+            waitForWindow();
+            // The batch is closed while holding the publish lock, so the next batch cannot be completed first
+            synchronized (publishLock) {
+                synchronized (this) {
+                    currentBatch = null;
+                }
+                batch.complete();
+            }
+        } else {
+            batch.await();
+        }
+
+        IOException failure = entry.failure;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void waitForWindow()
+    {
+        long deadline = System.nanoTime() + windowNanos;
+        for (;;) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private static final class Entry
+    {
+        final @NotNull AtomicFileTarget file;
+        boolean isPublished;
+        @Nullable IOException failure;
+
+        Entry(@NotNull AtomicFileTarget file)
+        {
+            this.file = file;
+        }
+    }
+
+    private static final class Batch
+    {
+        final @NotNull List<Entry> entries = new ArrayList<>();  // guarded by the group committer until closed
+        private boolean isComplete;  // guarded by this
+
+        void complete()
+        {
+            try {
+                Set<Path> directories = new LinkedHashSet<>();
+                for (Entry e : entries) {
+                    try {
+                        e.file.publish();
+                        e.isPublished = true;
+                        directories.add(e.file.getDirectory());
+                    } catch (IOException ex) {
+                        e.failure = ex;
+                    }
+                }
+                for (Path directory : directories) {
+                    AtomicFileTarget.syncDirectory(directory);
+                }
+            } finally {
+                // An unchecked exception must not leave a commit unresolved or a waiting thread blocked
+                for (Entry e : entries) {
+                    if (!e.isPublished && e.failure == null) {
+                        e.file.abort();
+                        e.failure = new IOException("Commit abandoned");
+                    }
+                }
+                synchronized (this) {
+                    isComplete = true;
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void await()
+        {
+            // The commit cannot be abandoned, so interrupts are deferred until the batch is complete
+            boolean isInterrupted = false;
+            while (!isComplete) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+import org.jetbrains.annotations.*;
+
+/**
+  A transactional output stream that creates or replaces a large file using memory mapping. This output stream is
+  intended for large files whose size is known in advance, or for which a good upper bound is known.
+  <p>
+  The temporary file is extended to the expected size and mapped into memory in fixed size regions, so that writing is
+  a memory copy rather than a system call. Each region is forced to the storage device when writing moves past it,
+  which bounds the amount of dirty memory. Writing past the expected size is permitted; the file is extended as needed.
+  When the output stream is committed, the temporary file is truncated to the written length, forced to the storage
+  device, and atomically renamed to replace the target file. If the output stream is aborted, the temporary file is
+  deleted.
+  <p>
+  This output stream supports the {@link ChannelTransferSupport} extension. Transferred data is read directly into the
+  mapped regions.
+  <p>
+  Mapped regions are released by the garbage collector. On platforms that do not permit a mapped file to be truncated
+  (Windows), the commit may fail if the written length is less than the mapped length.
+  <p>
+  This class is not thread safe.
+
+  @see FileTransactionalOutputStream
+*/
+
+public final class MappedTransactionalOutputStream
+  implements TransactionalOutputStream, ChannelTransferSupport
+{
+    /**
+      The default size of a mapped region.
+    */
+
+    public static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+    /**
+      Create a memory mapped transactional output stream for a file.
+
+      @param target The file to be created or replaced when the output stream is committed.
+      @param expectedSize The expected size of the file, in bytes.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull MappedTransactionalOutputStream create(@NotNull Path target, long expectedSize)
+      throws IOException
+    {
+        return create(target, expectedSize, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+      Create a memory mapped transactional output stream for a file.
+
+      @param target The file to be created or replaced when the output stream is committed.
+      @param expectedSize The expected size of the file, in bytes.
+      @param regionSize The size of the mapped regions, in bytes.
+      @throws IOException if the temporary file could not be created.
+    */
+
+    public static @NotNull MappedTransactionalOutputStream create(@NotNull Path target,
+                                                                  long expectedSize,
+                                                                  int regionSize)
+      throws IOException
+    {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid expected size: " + expectedSize);
+        }
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("Invalid region size: " + regionSize);
+        }
+        return new MappedTransactionalOutputStream(target, expectedSize, regionSize);
+    }
+
+    private static final int MINIMUM_REGION_SIZE = 4096;
+
+    private @Nullable AtomicFileTarget file;
+    private final long expectedSize;
+    private final int regionSize;
+    private @Nullable MappedByteBuffer region;
+    private long regionStart;
+
+    private MappedTransactionalOutputStream(@NotNull Path target, long expectedSize, int regionSize)
+      throws IOException
+    {
+        AtomicFileTarget file = AtomicFileTarget.create(target);
+        this.file = file;
+        this.expectedSize = expectedSize;
+        this.regionSize = regionSize;
+        try {
+            if (expectedSize > 0) {
+                // Extend the file to its expected size with a single metadata update
+                file.getChannel().write(ByteBuffer.wrap(new byte[1]), expectedSize - 1);
+            }
+            region = map(0);
+        } catch (IOException ex) {
+            abort();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void write(int b)
+      throws IOException
+    {
+        MappedByteBuffer region = check();
+        if (!region.hasRemaining()) {
+            region = nextRegion();
+        }
+        region.put((byte) b);
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len)
+      throws IOException
+    {
+        MappedByteBuffer region = check();
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            if (!region.hasRemaining()) {
+                region = nextRegion();
+            }
+            int count = Math.min(len, region.remaining());
+            region.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void write(@NotNull ByteBuffer b)
+      throws IOException
+    {
+        MappedByteBuffer region = check();
+        while (b.hasRemaining()) {
+            if (!region.hasRemaining()) {
+                region = nextRegion();
+            }
+            DirectBuffers.putAvailable(region, b);
+        }
+    }
+
+    @Override
+    public long transferFrom(@NotNull ReadableByteChannel source, long count)
+      throws IOException
+    {
+        MappedByteBuffer region = check();
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+        long total = 0;
+        while (total < count) {
+            if (!region.hasRemaining()) {
+                region = nextRegion();
+            }
+            int limit = region.limit();
+            if (count - total < region.remaining()) {
+                region.limit(region.position() + (int) (count - total));
+            }
+            int n;
+            try {
+                n = source.read(region);
+            } finally {
+                region.limit(limit);
+            }
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public long transferFrom(@NotNull FileChannel source, long position, long count)
+      throws IOException
+    {
+        MappedByteBuffer region = check();
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("Invalid position or count");
+        }
+        long total = 0;
+        while (total < count) {
+            if (!region.hasRemaining()) {
+                region = nextRegion();
+            }
+            int limit = region.limit();
+            if (count - total < region.remaining()) {
+                region.limit(region.position() + (int) (count - total));
+            }
+            int n;
+            try {
+                n = source.read(region, position + total);
+            } finally {
+                region.limit(limit);
+            }
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+      This method has no effect. Written data is already visible in the temporary file.
+    */
+
+    @Override
+    public void flush()
+      throws IOException
+    {
+        check();
+    }
+
+    @Override
+    public void commit()
+      throws IOException
+    {
+        AtomicFileTarget f = file;
+        MappedByteBuffer region = this.region;
+        if (f != null && region != null) {
+            try {
+                region.force();
+                f.getChannel().truncate(regionStart + region.position());
+            } catch (IOException ex) {
+                abort();
+                throw ex;
+            }
+            file = null;
+            this.region = null;
+            f.commit();
+        }
+    }
+
+    @Override
+    public void abort()
+    {
+        AtomicFileTarget f = file;
+        if (f != null) {
+            file = null;
+            region = null;
+            f.abort();
+        }
+    }
+
+    private @NotNull MappedByteBuffer nextRegion()
+      throws IOException
+    {
+        MappedByteBuffer region = this.region;
+        assert region != null;
+        region.force();
+        regionStart += region.capacity();
+        MappedByteBuffer next = map(regionStart);
+        this.region = next;
+        return next;
+    }
+
+    private @NotNull MappedByteBuffer map(long start)
+      throws IOException
+    {
+        assert file != null;
+
+        // Regions are not mapped past the expected size unless the expected size has been reached
+        long size = regionSize;
+        long remainingExpected = expectedSize - start;
+        if (remainingExpected > 0 && remainingExpected < size) {
+            size = Math.max(remainingExpected, MINIMUM_REGION_SIZE);
+        }
+        return file.getChannel().map(FileChannel.MapMode.READ_WRITE, start, size);
+    }
+
+    private @NotNull MappedByteBuffer check()
+    {
+        if (region == null) {
+            throw new IllegalStateException("Output stream has been committed or aborted");
+        }
+        return region;
+    }
+}
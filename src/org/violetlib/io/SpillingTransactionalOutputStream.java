@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import org.jetbrains.annotations.*;
+
+/**
+  A transactional output stream that creates or replaces a file, and that keeps small contents in memory.
+  <p>
+  The contents are collected in a direct buffer whose size is the threshold. Contents that fit within the threshold
+  never touch the file system until the output stream is committed: the temporary file is then created,
+  the contents are written using a single write operation, and the temporary file is atomically renamed to replace
+  the target file. If the output stream is aborted, no file is created.
+  <p>
+  When the contents exceed the threshold, they spill to a temporary file in the same directory as the target file,
+  and the output stream behaves like a {@link FileTransactionalOutputStream}. If writing the temporary file fails, the
+  output stream is aborted.
+  <p>
+  In either case, after a crash, the target file contains either its previous contents or the new contents, never a
+  partially written file.
+  <p>
+  This class is not thread safe.
+*/
+
+public final class SpillingTransactionalOutputStream
+  implements TransactionalOutputStream
+{
+    /**
+      The default threshold, in bytes.
+    */
+
+    public static final int DEFAULT_THRESHOLD = 64 * 1024;
+
+    /**
+      Create a transactional output stream for a file, using the default threshold.
+
+      @param target The file to be created or replaced when the output stream is committed.
+    */
+
+    public static @NotNull SpillingTransactionalOutputStream create(@NotNull Path target)
+    {
+        return new SpillingTransactionalOutputStream(target, DEFAULT_THRESHOLD);
+    }
+
+    /**
+      Create a transactional output stream for a file.
+
+      @param target The file to be created or replaced when the output stream is committed.
+      @param threshold The number of bytes that may be kept in memory, which is also the size of the buffer. Contents
+      larger than this are written to a temporary file.
+      @throws IllegalArgumentException if {@code threshold} is not positive.
+    */
+
+    public static @NotNull SpillingTransactionalOutputStream create(@NotNull Path target, int threshold)
+      throws IllegalArgumentException
+    {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        return new SpillingTransactionalOutputStream(target, threshold);
+    }
+
+    private final @NotNull Path target;
+    private final int threshold;
+    private @Nullable ByteBuffer buffer;
+    private @Nullable AtomicFileTarget file;  // created when the contents spill or when committed
+
+    private SpillingTransactionalOutputStream(@NotNull Path target, int threshold)
+    {
+        this.target = target;
+        this.threshold = threshold;
+        this.buffer = DirectBuffers.acquire(threshold);
+    }
+
+    /**
+      Indicate whether the contents have been written to a temporary file.
+    */
+
+    public boolean isSpilled()
+    {
+        return file != null;
+    }
+
+    @Override
+    public void write(int b)
+      throws IOException
+    {
+        ByteBuffer buffer = check();
+        if (!buffer.hasRemaining()) {
+            buffer = makeRoom();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len)
+      throws IOException
+    {
+        ByteBuffer buffer = check();
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (file != null && len >= buffer.capacity()) {
+            // A large write bypasses the buffer
+            drain();
+            writeFile(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+
+        while (len > 0) {
+            if (!buffer.hasRemaining()) {
+                buffer = makeRoom();
+                if (len >= buffer.capacity()) {
+                    // The contents have spilled and the buffer is empty
+                    writeFile(ByteBuffer.wrap(b, off, len));
+                    return;
+                }
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    @Override
+    public void write(@NotNull ByteBuffer b)
+      throws IOException
+    {
+        ByteBuffer buffer = check();
+
+        if (file != null && b.remaining() >= buffer.capacity()) {
+            // A large write bypasses the buffer
+            drain();
+            writeFile(b);
+            return;
+        }
+
+        while (b.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                buffer = makeRoom();
+                if (b.remaining() >= buffer.capacity()) {
+                    // The contents have spilled and the buffer is empty
+                    writeFile(b);
+                    return;
+                }
+            }
+            DirectBuffers.putAvailable(buffer, b);
+        }
+    }
+
+    /**
+      If the contents have spilled, write any buffered contents to the temporary file. This method does not force the
+      contents to the storage device and does not make the contents visible in the target file. Contents held in
+      memory are not written.
+    */
+
+    @Override
+    public void flush()
+      throws IOException
+    {
+        check();
+        if (file != null) {
+            drain();
+        }
+    }
+
+    @Override
+    public void commit()
+      throws IOException
+    {
+        if (buffer != null) {
+            AtomicFileTarget f = file;
+            try {
+                if (f == null) {
+                    f = AtomicFileTarget.create(target);
+                    file = f;
+                }
+                drain();
+            } catch (IOException ex) {
+                abort();
+                throw ex;
+            }
+            terminate();
+            f.commit();
+        }
+    }
+
+    @Override
+    public void abort()
+    {
+        if (buffer != null) {
+            AtomicFileTarget f = file;
+            terminate();
+            if (f != null) {
+                f.abort();
+            }
+        }
+    }
+
+    /**
+      Make room in the buffer, which is full, by writing its contents to the temporary file. The temporary file is
+      created if necessary.
+
+      @return the buffer, which is empty.
+    */
+
+    private @NotNull ByteBuffer makeRoom()
+      throws IOException
+    {
+        ByteBuffer buffer = this.buffer;
+        assert buffer != null;
+
+        if (file == null) {
+            file = AtomicFileTarget.create(target);
+        }
+
+        drain();
+        return buffer;
+    }
+
+    /**
+      Write the buffered contents to the temporary file, if it exists.
+    */
+
+    private void drain()
+      throws IOException
+    {
+        ByteBuffer buffer = this.buffer;
+        if (buffer != null && file != null && buffer.position() > 0) {
+            buffer.flip();
+            writeFile(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+      Write to the temporary file. If the write fails, the output stream is aborted, as the temporary file no longer
+      has the intended contents.
+    */
+
+    private void writeFile(@NotNull ByteBuffer b)
+      throws IOException
+    {
+        AtomicFileTarget f = file;
+        assert f != null;
+        try {
+            f.write(b);
+        } catch (IOException ex) {
+            abort();
+            throw ex;
+        }
+    }
+
+    private void terminate()
+    {
+        ByteBuffer buffer = this.buffer;
+        file = null;
+        this.buffer = null;
+        if (buffer != null) {
+            DirectBuffers.release(buffer);
+        }
+    }
+
+    private @NotNull ByteBuffer check()
+    {
+        if (buffer == null) {
+            throw new IllegalStateException("Output stream has been committed or aborted");
+        }
+        return buffer;
+    }
+}
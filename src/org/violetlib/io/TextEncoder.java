@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.jetbrains.annotations.*;
+
+/**
+  Encodes text into a reusable byte buffer, which is passed to a sink when it fills. Characters are collected in a
+  reusable character array and encoded in bulk, so that writing text does not allocate objects. Newline characters are
+  mapped to the platform line separator.
+  <p>
+  Malformed input and unmappable characters are replaced using the replacement bytes of the charset.
+*/
+
+/* package private */ final class TextEncoder
+{
+    /**
+      The recipient of encoded bytes.
+    */
+
+    public interface Sink
+    {
+        /**
+          Write the remaining contents of a buffer. The buffer is reused when this method returns.
+        */
+
+        void write(@NotNull ByteBuffer b)
+          throws IOException;
+    }
+
+    private static final @NotNull String lineSeparator = System.lineSeparator();
+    private static final boolean isNewlineSeparator = lineSeparator.equals("\n");
+
+    private final @NotNull CharsetEncoder encoder;
+    private final @NotNull Sink sink;
+    private final char @NotNull [] chars;
+    private final @NotNull CharBuffer charBuffer;
+    private final @NotNull ByteBuffer bytes;
+    private int count;
+
+    /**
+      Return the smallest byte buffer size that can hold the encoding of a surrogate pair in the specified charset.
+    */
+
+    public static int minimumBufferSize(@NotNull Charset charset)
+    {
+        return minimumBufferSize(charset.newEncoder());
+    }
+
+    private static int minimumBufferSize(@NotNull CharsetEncoder encoder)
+    {
+        return Math.max(16, (int) Math.ceil(encoder.maxBytesPerChar() * 2));
+    }
+
+    /**
+      Create an encoder.
+
+      @param charset The charset used to encode text.
+      @param bytes The buffer that collects the encoded bytes.
+      @param charCapacity The number of characters to collect before encoding.
+      @param sink The recipient of the encoded bytes.
+      @throws IllegalArgumentException if the capacity of {@code bytes} is less than the minimum buffer size for the
+      charset.
+    */
+
+    public TextEncoder(@NotNull Charset charset, @NotNull ByteBuffer bytes, int charCapacity, @NotNull Sink sink)
+      throws IllegalArgumentException
+    {
+        this.encoder = charset.newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int minimum = minimumBufferSize(encoder);
+        if (bytes.capacity() < minimum) {
+            throw new IllegalArgumentException("Buffer size " + bytes.capacity() + " is less than " + minimum);
+        }
+        this.sink = sink;
+        this.chars = new char[Math.max(charCapacity, 16)];
+        this.charBuffer = CharBuffer.wrap(chars);
+        this.bytes = bytes;
+        bytes.clear();
+    }
+
+    public void write(char ch)
+      throws IOException
+    {
+        if (ch == '\n' && !isNewlineSeparator) {
+            newLine();
+        } else {
+            if (count == chars.length) {
+                encode(false);
+            }
+            chars[count++] = ch;
+        }
+    }
+
+    public void write(@NotNull String s)
+      throws IOException
+    {
+        write(s, 0, s.length());
+    }
+
+    /**
+      Write a portion of a string.
+
+      @param s The string.
+      @param start The index of the first character to write.
+      @param end The index after the last character to write.
+    */
+
+    public void write(@NotNull String s, int start, int end)
+      throws IOException
+    {
+        if (isNewlineSeparator) {
+            append(s, start, end);
+        } else {
+            for (;;) {
+                int i = indexOfNewline(s, start, end);
+                if (i < 0) {
+                    append(s, start, end);
+                    return;
+                }
+                append(s, start, i);
+                newLine();
+                start = i + 1;
+            }
+        }
+    }
+
+    private static int indexOfNewline(@NotNull String s, int start, int end)
+    {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+      Write a portion of an array of characters.
+
+      @param a The characters.
+      @param offset The index of the first character to write.
+      @param length The number of characters to write.
+    */
+
+    public void write(char @NotNull [] a, int offset, int length)
+      throws IOException
+    {
+        if (offset < 0 || length < 0 || length > a.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = offset + length;
+        if (isNewlineSeparator) {
+            append(a, offset, end);
+        } else {
+            int start = offset;
+            for (int i = offset; i < end; i++) {
+                if (a[i] == '\n') {
+                    append(a, start, i);
+                    newLine();
+                    start = i + 1;
+                }
+            }
+            append(a, start, end);
+        }
+    }
+
+    /**
+      Write a portion of a character sequence.
+
+      @param s The character sequence.
+      @param start The index of the first character to write.
+      @param end The index after the last character to write.
+    */
+
+    public void write(@NotNull CharSequence s, int start, int end)
+      throws IOException
+    {
+        if (start < 0 || start > end || end > s.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (s instanceof String) {
+            write((String) s, start, end);
+        } else {
+            for (int i = start; i < end; i++) {
+                write(s.charAt(i));
+            }
+        }
+    }
+
+    public void newLine()
+      throws IOException
+    {
+        append(lineSeparator, 0, lineSeparator.length());
+    }
+
+    /**
+      Encode the collected characters and pass all encoded bytes to the sink. A partial surrogate pair remains pending.
+    */
+
+    public void flush()
+      throws IOException
+    {
+        encode(false);
+        drain();
+    }
+
+    /**
+      Encode the collected characters, complete the encoding, and pass all encoded bytes to the sink. The encoder may
+      be reused after this method returns.
+    */
+
+    public void finish()
+      throws IOException
+    {
+        encode(true);
+        for (;;) {
+            CoderResult r = encoder.flush(bytes);
+            if (r.isOverflow()) {
+                drainAfterOverflow();
+            } else {
+                break;
+            }
+        }
+        drain();
+        encoder.reset();
+    }
+
+    private void append(@NotNull String s, int start, int end)
+      throws IOException
+    {
+        while (start < end) {
+            if (count == chars.length) {
+                encode(false);
+            }
+            int n = Math.min(end - start, chars.length - count);
+            s.getChars(start, start + n, chars, count);
+            count += n;
+            start += n;
+        }
+    }
+
+    private void append(char @NotNull [] a, int start, int end)
+      throws IOException
+    {
+        while (start < end) {
+            if (count == chars.length) {
+                encode(false);
+            }
+            int n = Math.min(end - start, chars.length - count);
+            System.arraycopy(a, start, chars, count, n);
+            count += n;
+            start += n;
+        }
+    }
+
+    private void encode(boolean isEndOfInput)
+      throws IOException
+    {
+        charBuffer.limit(count);
+        charBuffer.position(0);
+        for (;;) {
+            CoderResult r = encoder.encode(charBuffer, bytes, isEndOfInput);
+            if (r.isOverflow()) {
+                drainAfterOverflow();
+            } else if (r.isUnderflow()) {
+                break;
+            } else {
+                r.throwException();
+            }
+        }
+
+        // An incomplete surrogate pair is retained for the next encoding
+        int remaining = charBuffer.remaining();
+        if (remaining > 0) {
+            System.arraycopy(chars, charBuffer.position(), chars, 0, remaining);
+        }
+        count = remaining;
+    }
+
+    private void drainAfterOverflow()
+      throws IOException
+    {
+        if (bytes.position() == 0) {
+            // No progress is possible
+            throw new IllegalStateException("Buffer too small for encoder output: " + bytes.capacity());
+        }
+        drain();
+    }
+
+    private void drain()
+      throws IOException
+    {
+        if (bytes.position() > 0) {
+            bytes.flip();
+            try {
+                sink.write(bytes);
+            } finally {
+                bytes.clear();
+            }
+        }
+    }
+}
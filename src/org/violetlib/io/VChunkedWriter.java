@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.types.IORuntimeException;
+import org.violetlib.util.CleaningService;
+
+/**
+  A writer that collects text in fixed-size chunks. Unlike {@link VStringWriter}, the text is never copied to enlarge a
+  buffer, and it can be written to another writer or to a channel without creating a string that contains all of the
+  text. Newlines are collected as newline characters.
+  <p>
+  A spilling writer moves full chunks to a temporary file when the text in memory exceeds a threshold. The temporary
+  file is deleted when {@link #dispose} is called or when the writer is collected.
+  <p>
+  This class is not thread safe.
+*/
+
+public final class VChunkedWriter
+  implements VUWriter
+{
+    /**
+      The default number of characters in a chunk.
+    */
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    /**
+      Create a writer that keeps the text in memory, using the default chunk size.
+    */
+
+    public static @NotNull VChunkedWriter create()
+    {
+        return new VChunkedWriter(DEFAULT_CHUNK_SIZE, Long.MAX_VALUE);
+    }
+
+    /**
+      Create a writer that keeps the text in memory.
+
+      @param chunkSize The number of characters in a chunk.
+      @throws IllegalArgumentException if {@code chunkSize} is not positive.
+    */
+
+    public static @NotNull VChunkedWriter create(int chunkSize)
+      throws IllegalArgumentException
+    {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        return new VChunkedWriter(chunkSize, Long.MAX_VALUE);
+    }
+
+    /**
+      Create a writer that moves text to a temporary file when the text in memory exceeds a threshold.
+
+      @param chunkSize The number of characters in a chunk.
+      @param spillThreshold The number of characters that may be kept in memory before full chunks are moved to the
+      temporary file.
+      @throws IllegalArgumentException if {@code chunkSize} is not positive or {@code spillThreshold} is negative.
+    */
+
+    public static @NotNull VChunkedWriter createSpilling(int chunkSize, long spillThreshold)
+      throws IllegalArgumentException
+    {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        if (spillThreshold < 0) {
+            throw new IllegalArgumentException("Invalid spill threshold: " + spillThreshold);
+        }
+        return new VChunkedWriter(chunkSize, spillThreshold);
+    }
+
+    private static final int BYTE_BUFFER_SIZE = 8192;
+
+    private final int chunkSize;
+    private final long spillThreshold;
+    private final @NotNull List<char[]> chunks = new ArrayList<>();  // full chunks in memory
+    private char @Nullable [] current;
+    private int position;  // the number of characters in the current chunk
+    private long length;
+    private boolean isDisposed;
+
+    // The spill file, if created, holds the first spilledChunks chunks as UTF-16 characters
+    private @Nullable SpillFile spill;
+    private @Nullable CleaningService.Cleanable spillCleaner;
+    private @Nullable ByteBuffer spillBuffer;
+    private int spilledChunks;
+
+    private VChunkedWriter(int chunkSize, long spillThreshold)
+    {
+        this.chunkSize = chunkSize;
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+      Return the number of characters written.
+    */
+
+    public long length()
+    {
+        return length;
+    }
+
+    @Override
+    public void write(char ch)
+      throws IORuntimeException
+    {
+        char[] chunk = currentChunk();
+        chunk[position++] = ch;
+        length++;
+    }
+
+    @Override
+    public void write(@NotNull String s)
+      throws IORuntimeException
+    {
+        write(s, 0, s.length());
+    }
+
+    @Override
+    public void write(char @NotNull [] chars, int offset, int length)
+      throws IORuntimeException
+    {
+        if (offset < 0 || length < 0 || offset > chars.length - length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = offset + length;
+        while (offset < end) {
+            char[] chunk = currentChunk();
+            int count = Math.min(end - offset, chunk.length - position);
+            System.arraycopy(chars, offset, chunk, position, count);
+            position += count;
+            offset += count;
+            this.length += count;
+        }
+    }
+
+    @Override
+    public void write(@NotNull CharSequence s, int start, int end)
+      throws IORuntimeException
+    {
+        if (start < 0 || end > s.length() || start > end) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (s instanceof String) {
+            String st = (String) s;
+            while (start < end) {
+                char[] chunk = currentChunk();
+                int count = Math.min(end - start, chunk.length - position);
+                st.getChars(start, start + count, chunk, position);
+                position += count;
+                start += count;
+                length += count;
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                write(s.charAt(i));
+            }
+        }
+    }
+
+    @Override
+    public void newLine()
+      throws IORuntimeException
+    {
+        write('\n');
+    }
+
+    @Override
+    public void flush()
+    {
+    }
+
+    /**
+      Write the collected text to another writer.
+
+      @param w The writer.
+      @throws IORuntimeException if the text cannot be read from the temporary file, or if {@code w} fails.
+    */
+
+    public void writeTo(@NotNull VUWriter w)
+      throws IORuntimeException
+    {
+        try {
+            forEachChunk(w::write);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    /**
+      Write the collected text to a writer.
+
+      @param w The writer.
+      @throws IOException if the text cannot be read from the temporary file, or if {@code w} fails.
+    */
+
+    public void writeTo(@NotNull Writer w)
+      throws IOException
+    {
+        forEachChunk(w::write);
+    }
+
+    /**
+      Encode the collected text and write it to a channel. Malformed input and unmappable characters are replaced
+      using the replacement bytes of the charset.
+
+      @param channel The channel.
+      @param charset The charset used to encode the text.
+      @throws IOException if the text cannot be read from the temporary file, or if the channel fails.
+    */
+
+    public void writeTo(@NotNull WritableByteChannel channel, @NotNull Charset charset)
+      throws IOException
+    {
+        CharsetEncoder encoder = charset.newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        CharBuffer pair = CharBuffer.allocate(2);  // a surrogate pair that spans two chunks
+
+        forEachChunk((chars, offset, count) -> {
+            CharBuffer in = CharBuffer.wrap(chars, offset, count);
+            while (pair.position() > 0 && in.hasRemaining()) {
+                pair.put(in.get());
+                pair.flip();
+                encode(encoder, pair, bytes, channel, false);
+                // If the second character is also a high surrogate, it remains and is paired with the next character
+                pair.compact();
+            }
+            encode(encoder, in, bytes, channel, false);
+            if (in.hasRemaining()) {
+                // An unpaired high surrogate at the end of a chunk
+                pair.put(in.get());
+            }
+        });
+
+        pair.flip();
+        encode(encoder, pair, bytes, channel, true);
+        for (;;) {
+            CoderResult result = encoder.flush(bytes);
+            drain(bytes, channel);
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+    }
+
+    /**
+      Return the collected text. This method creates a string that contains all of the text.
+    */
+
+    @Override
+    public @NotNull String toString()
+    {
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Text is too long for a string");
+        }
+        StringBuilder sb = new StringBuilder((int) length);
+        try {
+            forEachChunk(sb::append);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+        return sb.toString();
+    }
+
+    /**
+      Discard the collected text and delete the temporary file, if any. The writer may not be used after this method
+      is called.
+    */
+
+    public void dispose()
+    {
+        isDisposed = true;
+        chunks.clear();
+        current = null;
+        position = 0;
+        length = 0;
+        spill = null;
+        spilledChunks = 0;
+        CleaningService.Cleanable c = spillCleaner;
+        if (c != null) {
+            spillCleaner = null;
+            c.clean();
+        }
+    }
+
+    private char @NotNull [] currentChunk()
+      throws IORuntimeException
+    {
+        char[] chunk = current;
+        if (chunk != null && position < chunk.length) {
+            return chunk;
+        }
+        if (isDisposed) {
+            throw new IllegalStateException("Writer has been disposed");
+        }
+        boolean isSpillNeeded = false;
+        if (chunk != null) {
+            chunks.add(chunk);
+            isSpillNeeded = (long) chunks.size() * chunkSize > spillThreshold;
+        }
+        // The full chunk must be replaced before spilling, so that a failed spill cannot cause it to be added again
+        chunk = new char[chunkSize];
+        current = chunk;
+        position = 0;
+        if (isSpillNeeded) {
+            spill();
+        }
+        return chunk;
+    }
+
+    private void spill()
+      throws IORuntimeException
+    {
+        try {
+            SpillFile f = spill;
+            ByteBuffer b = spillBuffer;
+            if (f == null || b == null) {
+                Path p = Files.createTempFile("VChunkedWriter", ".tmp");
+                f = new SpillFile(p, FileChannel.open(p, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                spillCleaner = CleaningService.create(this, f);
+                spill = f;
+                b = ByteBuffer.allocate(chunkSize * 2);
+                spillBuffer = b;
+            }
+            int count = 0;
+            try {
+                for (char[] chunk : chunks) {
+                    b.clear();
+                    b.asCharBuffer().put(chunk);
+                    long filePosition = (long) spilledChunks * chunkSize * 2;
+                    while (b.hasRemaining()) {
+                        filePosition += f.channel.write(b, filePosition);
+                    }
+                    spilledChunks++;
+                    count++;
+                }
+            } finally {
+                // Only the chunks that were written to the temporary file are removed
+                chunks.subList(0, count).clear();
+            }
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    private interface ChunkConsumer
+    {
+        void accept(char @NotNull [] chars, int offset, int count)
+          throws IOException;
+    }
+
+    private void forEachChunk(@NotNull ChunkConsumer consumer)
+      throws IOException
+    {
+        if (isDisposed) {
+            throw new IllegalStateException("Writer has been disposed");
+        }
+
+        SpillFile f = spill;
+        ByteBuffer b = spillBuffer;
+        if (f != null && b != null && spilledChunks > 0) {
+            char[] chunk = new char[chunkSize];
+            for (int i = 0; i < spilledChunks; i++) {
+                b.clear();
+                long filePosition = (long) i * chunkSize * 2;
+                while (b.hasRemaining()) {
+                    int count = f.channel.read(b, filePosition);
+                    if (count < 0) {
+                        throw new IOException("Temporary file is truncated");
+                    }
+                    filePosition += count;
+                }
+                b.flip();
+                b.asCharBuffer().get(chunk);
+                consumer.accept(chunk, 0, chunkSize);
+            }
+        }
+
+        for (char[] chunk : chunks) {
+            consumer.accept(chunk, 0, chunk.length);
+        }
+        char[] chunk = current;
+        if (chunk != null && position > 0) {
+            consumer.accept(chunk, 0, position);
+        }
+    }
+
+    private static void encode(@NotNull CharsetEncoder encoder,
+                               @NotNull CharBuffer in,
+                               @NotNull ByteBuffer bytes,
+                               @NotNull WritableByteChannel channel,
+                               boolean endOfInput)
+      throws IOException
+    {
+        for (;;) {
+            CoderResult result = encoder.encode(in, bytes, endOfInput);
+            if (result.isOverflow()) {
+                drain(bytes, channel);
+            } else {
+                if (endOfInput) {
+                    drain(bytes, channel);
+                }
+                return;
+            }
+        }
+    }
+
+    private static void drain(@NotNull ByteBuffer bytes, @NotNull WritableByteChannel channel)
+      throws IOException
+    {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+      The temporary file. This object is also the cleaning action that closes and deletes the file; it must not refer
+      to the writer.
+    */
+
+    private static final class SpillFile
+      implements Runnable
+    {
+        final @NotNull Path path;
+        final @NotNull FileChannel channel;
+
+        SpillFile(@NotNull Path path, @NotNull FileChannel channel)
+        {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@
 package org.violetlib.io;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.jetbrains.annotations.*;
 
@@ -30,6 +31,32 @@ public interface VOutputStream
     void write(byte @NotNull [] b, int off, int len)
       throws IOException;
 
+    /**
+      Write the remaining contents of a buffer. When this method returns normally, the position of the buffer is equal
+      to its limit.
+      <p>
+      The default implementation writes the backing array of the buffer, if accessible. Otherwise, the contents are
+      copied to a temporary array. Implementations that can accept a buffer directly should override this method.
+    */
+
+    default void write(@NotNull ByteBuffer b)
+      throws IOException
+    {
+        if (b.hasArray()) {
+            int position = b.position();
+            int len = b.limit() - position;
+            write(b.array(), b.arrayOffset() + position, len);
+            b.position(position + len);
+        } else {
+            byte[] chunk = new byte[Math.min(b.remaining(), 8192)];
+            while (b.hasRemaining()) {
+                int len = Math.min(b.remaining(), chunk.length);
+                b.get(chunk, 0, len);
+                write(chunk, 0, len);
+            }
+        }
+    }
+
     void flush()
       throws IOException;
 }
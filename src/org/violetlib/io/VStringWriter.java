@@ -12,21 +12,119 @@ import org.jetbrains.annotations.*;
 
 /**
   A writer that collects text in a String. This writer does not throw IO exceptions.
+  <p>
+  A writer can be reused by calling {@link #reset}, which retains the buffer. For code that creates many short-lived
+  writers, {@link #acquire} obtains a writer from a per-thread pool, and {@link #release} returns it:
+  <pre>
+  VStringWriter w = VStringWriter.acquire();
+  ...
+  String s = w.toString();
+  w.release();
+  </pre>
+  The {@link #detach} method returns the collected text and discards the buffer; subsequent writes are not permitted.
 */
 
 public class VStringWriter
   implements VUWriter
 {
+    /**
+      The largest buffer capacity that is retained by the pool. A released writer whose buffer has grown beyond this
+      capacity is discarded.
+    */
+
+    public static final int MAX_POOLED_CAPACITY = 16 * 1024;
+
     public static @NotNull VStringWriter create()
     {
-        return new VStringWriter();
+        return new VStringWriter(new StringBuilder());
     }
 
-    private @Nullable StringBuilder sb = new StringBuilder();
+    /**
+      Create a writer whose buffer initially has the specified capacity.
+
+      @param capacity The initial capacity, in characters.
+      @throws IllegalArgumentException if {@code capacity} is negative.
+    */
+
+    public static @NotNull VStringWriter create(int capacity)
+      throws IllegalArgumentException
+    {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        return new VStringWriter(new StringBuilder(capacity));
+    }
+
+    /**
+      Obtain an empty writer from the pool of the current thread, or create a writer if the pool is empty. The writer
+      should be returned to the pool using {@link #release} when it is no longer needed.
+    */
+
+    public static @NotNull VStringWriter acquire()
+    {
+        VStringWriter w = pool.get();
+        if (w != null) {
+            pool.set(null);
+            return w;
+        }
+        return create();
+    }
+
+    private static final @NotNull ThreadLocal<VStringWriter> pool = new ThreadLocal<>();
+
+    private @Nullable StringBuilder sb;
     private @Nullable String result;
 
-    private VStringWriter()
+    private VStringWriter(@NotNull StringBuilder sb)
+    {
+        this.sb = sb;
+    }
+
+    /**
+      Discard the collected text. The buffer is retained. If the writer has been detached, a new buffer is created and
+      the writer may be used again.
+    */
+
+    public void reset()
     {
+        if (sb != null) {
+            sb.setLength(0);
+        } else {
+            sb = new StringBuilder();
+            result = null;
+        }
+    }
+
+    /**
+      Return the collected text and discard the buffer. After this method is called, {@link #toString} returns the
+      same text, and writing is not permitted until the writer is {@link #reset}.
+
+      @return the collected text.
+    */
+
+    public @NotNull String detach()
+    {
+        if (sb != null) {
+            result = sb.toString();
+            sb = null;
+        }
+        assert result != null;
+        return result;
+    }
+
+    /**
+      Return this writer to the pool of the current thread. The writer is reset. The caller must not use the writer
+      after releasing it. A writer that has been detached, or whose buffer is larger than
+      {@link #MAX_POOLED_CAPACITY}, is not retained.
+    */
+
+    public void release()
+    {
+        StringBuilder b = sb;
+        if (b != null && b.capacity() <= MAX_POOLED_CAPACITY && pool.get() == null) {
+            b.setLength(0);
+            pool.set(this);
+        }
     }
 
     @Override
@@ -43,6 +141,20 @@ public class VStringWriter
         sb.append(s);
     }
 
+    @Override
+    public void write(char @NotNull [] chars, int offset, int length)
+    {
+        StringBuilder sb = check();
+        sb.append(chars, offset, length);
+    }
+
+    @Override
+    public void write(@NotNull CharSequence s, int start, int end)
+    {
+        StringBuilder sb = check();
+        sb.append(s, start, end);
+    }
+
     @Override
     public void newLine()
     {
@@ -58,13 +170,17 @@ public class VStringWriter
     @Override
     public @NotNull String toString()
     {
-        return sb != null ? sb.toString() : result;
+        if (sb != null) {
+            return sb.toString();
+        }
+        assert result != null;
+        return result;
     }
 
     private @NotNull StringBuilder check()
     {
         if (sb == null) {
-            throw new IllegalStateException("VStringWriter has been closed");
+            throw new IllegalStateException("VStringWriter has been detached");
         }
         return sb;
     }
@@ -35,6 +35,25 @@ public interface VULineWriter
     void writeln(@NotNull String s)
       throws IORuntimeException;
 
+    /**
+      Write a portion of a character sequence as a single line. The sequence is not retained after this method
+      returns, so a line writer that retains the text must copy it.
+      <p>
+      The default implementation creates a string and calls {@link #writeln(String)}. Implementations should override
+      this method if they can consume the text without creating a string.
+
+      @param s The character sequence.
+      @param start The index of the first character of the line.
+      @param end The index after the last character of the line. The line should not include newlines.
+      @throws IORuntimeException
+    */
+
+    default void writeln(@NotNull CharSequence s, int start, int end)
+      throws IORuntimeException
+    {
+        writeln(s.subSequence(start, end).toString());
+    }
+
     void flush()
       throws IOException;
 }
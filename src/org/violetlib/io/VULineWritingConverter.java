@@ -8,6 +8,8 @@
 
 package org.violetlib.io;
 
+import java.nio.CharBuffer;
+
 import org.jetbrains.annotations.*;
 import org.violetlib.types.IORuntimeException;
 
@@ -57,10 +59,44 @@ public class VULineWritingConverter
     public void write(@NotNull String s)
       throws IORuntimeException
     {
-        int length = s.length();
-        for (int i = 0; i < length; i++) {
-            write(s.charAt(i));
+        writeLines(s, 0, s.length());
+    }
+
+    @Override
+    public void write(char @NotNull [] chars, int offset, int length)
+      throws IORuntimeException
+    {
+        if (offset < 0 || length < 0 || length > chars.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = offset + length;
+        int start = offset;
+        CharBuffer cb = null;
+        for (int i = offset; i < end; i++) {
+            if (chars[i] == '\n') {
+                if (sb.length() == 0) {
+                    if (cb == null) {
+                        cb = CharBuffer.wrap(chars);
+                    }
+                    target.writeln(cb, start, i);
+                } else {
+                    sb.append(chars, start, i - start);
+                    finishCurrentLine();
+                }
+                start = i + 1;
+            }
+        }
+        sb.append(chars, start, end - start);
+    }
+
+    @Override
+    public void write(@NotNull CharSequence s, int start, int end)
+      throws IORuntimeException
+    {
+        if (start < 0 || start > end || end > s.length()) {
+            throw new IndexOutOfBoundsException();
         }
+        writeLines(s, start, end);
     }
 
     @Override
@@ -85,10 +121,47 @@ public class VULineWritingConverter
         }
     }
 
+    /**
+      Write text to the target. Complete lines that do not extend a partial line are passed directly to the target
+      without being copied.
+    */
+
+    private void writeLines(@NotNull CharSequence s, int start, int end)
+    {
+        // String.indexOf is fast but cannot be bounded, so it is used only when the range extends to the end
+        String string = s instanceof String && end == s.length() ? (String) s : null;
+        for (;;) {
+            int i = string != null ? string.indexOf('\n', start) : indexOfNewline(s, start, end);
+            if (i < 0 || i >= end) {
+                break;
+            }
+            if (sb.length() == 0) {
+                target.writeln(s, start, i);
+            } else {
+                sb.append(s, start, i);
+                finishCurrentLine();
+            }
+            start = i + 1;
+        }
+        sb.append(s, start, end);
+    }
+
+    private static int indexOfNewline(@NotNull CharSequence s, int start, int end)
+    {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private void finishCurrentLine()
     {
-        String line = sb.toString();
-        sb.setLength(0);
-        target.writeln(line);
+        try {
+            target.writeln(sb, 0, sb.length());
+        } finally {
+            sb.setLength(0);
+        }
     }
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.types.IORuntimeException;
+
+/**
+  A buffered writer that encodes text and writes the bytes to a {@link VUOutputStream}.
+  <p>
+  Text is collected in a character buffer and encoded in bulk into a byte buffer, both of which are allocated once and
+  reused. Newline characters are mapped to the platform line separator without creating intermediate strings. Writing
+  text does not allocate objects.
+  <p>
+  The {@link #flush} method writes all buffered text to the output stream and flushes the output stream, except that a
+  trailing unpaired high surrogate is retained until the following character is written.
+  <p>
+  This class is not thread safe.
+*/
+
+public final class VUOutputStreamWriter
+  implements VUWriter
+{
+    /**
+      The default size of the buffer used to collect encoded text.
+    */
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+      Create a writer that encodes text using UTF-8.
+
+      @param out The output stream that receives the encoded text.
+    */
+
+    public static @NotNull VUWriter create(@NotNull VUOutputStream out)
+    {
+        return new VUOutputStreamWriter(out, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+      Create a writer that encodes text using the specified charset.
+
+      @param out The output stream that receives the encoded text.
+      @param charset The charset used to encode the text.
+    */
+
+    public static @NotNull VUWriter create(@NotNull VUOutputStream out, @NotNull Charset charset)
+    {
+        return new VUOutputStreamWriter(out, charset, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+      Create a writer that encodes text using the specified charset.
+
+      @param out The output stream that receives the encoded text.
+      @param charset The charset used to encode the text.
+      @param bufferSize The size of the buffer used to collect encoded text. A size too small to hold the encoding of
+      a surrogate pair is increased.
+    */
+
+    public static @NotNull VUWriter create(@NotNull VUOutputStream out, @NotNull Charset charset, int bufferSize)
+    {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        return new VUOutputStreamWriter(out, charset, bufferSize);
+    }
+
+    private final @NotNull VUOutputStream out;
+    private final @NotNull TextEncoder encoder;
+
+    private VUOutputStreamWriter(@NotNull VUOutputStream out, @NotNull Charset charset, int bufferSize)
+    {
+        this.out = out;
+        ByteBuffer bytes = ByteBuffer.allocate(Math.max(bufferSize, TextEncoder.minimumBufferSize(charset)));
+        this.encoder = new TextEncoder(charset, bytes, bufferSize, out::write);
+    }
+
+    @Override
+    public void write(char ch)
+      throws IORuntimeException
+    {
+        try {
+            encoder.write(ch);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void write(@NotNull String s)
+      throws IORuntimeException
+    {
+        try {
+            encoder.write(s);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void write(char @NotNull [] chars, int offset, int length)
+      throws IORuntimeException
+    {
+        try {
+            encoder.write(chars, offset, length);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void write(@NotNull CharSequence s, int start, int end)
+      throws IORuntimeException
+    {
+        try {
+            encoder.write(s, start, end);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void writeln(@NotNull String s)
+      throws IORuntimeException
+    {
+        try {
+            encoder.write(s);
+            encoder.newLine();
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void newLine()
+      throws IORuntimeException
+    {
+        try {
+            encoder.newLine();
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void flush()
+      throws IORuntimeException
+    {
+        try {
+            encoder.flush();
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+        out.flush();
+    }
+}
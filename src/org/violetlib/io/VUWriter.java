@@ -46,6 +46,57 @@ public interface VUWriter
     void write(@NotNull String s)
       throws IORuntimeException;
 
+    /**
+      Write a portion of an array of characters.
+      <p>
+      The default implementation writes the characters individually. Implementations should override this method if
+      they can write the characters in bulk.
+
+      @param chars The characters.
+      @param offset The index of the first character to write.
+      @param length The number of characters to write.
+      @throws IndexOutOfBoundsException if the specified portion is not within the array.
+    */
+
+    default void write(char @NotNull [] chars, int offset, int length)
+      throws IORuntimeException
+    {
+        if (offset < 0 || length < 0 || length > chars.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            write(chars[i]);
+        }
+    }
+
+    /**
+      Write a portion of a character sequence. The sequence is not retained after this method returns.
+      <p>
+      The default implementation writes a complete string using {@link #write(String)}. Otherwise, it writes the
+      characters individually. Implementations should override this method if they can write the characters in bulk.
+
+      @param s The character sequence.
+      @param start The index of the first character to write.
+      @param end The index after the last character to write.
+      @throws IndexOutOfBoundsException if the specified portion is not within the character sequence.
+    */
+
+    default void write(@NotNull CharSequence s, int start, int end)
+      throws IORuntimeException
+    {
+        if (start < 0 || start > end || end > s.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (start == 0 && end == s.length() && s instanceof String) {
+            write((String) s);
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            write(s.charAt(i));
+        }
+    }
+
     default void writeln()
       throws IORuntimeException
     {
@@ -54,17 +54,66 @@ public final class VUWriterWrapper
             if (isNewlineSeparator) {
                 w.write(s);
             } else {
-                int offset = 0;
-                for (;;) {
-                    int i = s.indexOf('\n', offset);
-                    if (i < 0) {
-                        w.write(s.substring(offset));
-                        return;
+                writeSeparated(w, s, 0, s.length());
+            }
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void write(char @NotNull [] chars, int offset, int length)
+    {
+        Writer w = check();
+        if (offset < 0 || length < 0 || length > chars.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        try {
+            if (isNewlineSeparator) {
+                w.write(chars, offset, length);
+            } else {
+                int end = offset + length;
+                int start = offset;
+                for (int i = offset; i < end; i++) {
+                    if (chars[i] == '\n') {
+                        w.write(chars, start, i - start);
+                        w.write(System.lineSeparator());
+                        start = i + 1;
+                    }
+                }
+                w.write(chars, start, end - start);
+            }
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    @Override
+    public void write(@NotNull CharSequence s, int start, int end)
+    {
+        Writer w = check();
+        if (start < 0 || start > end || end > s.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        try {
+            if (s instanceof String) {
+                if (isNewlineSeparator) {
+                    w.write((String) s, start, end - start);
+                } else {
+                    writeSeparated(w, (String) s, start, end);
+                }
+            } else if (isNewlineSeparator) {
+                w.append(s, start, end);
+            } else {
+                int segmentStart = start;
+                for (int i = start; i < end; i++) {
+                    if (s.charAt(i) == '\n') {
+                        w.append(s, segmentStart, i);
+                        w.write(System.lineSeparator());
+                        segmentStart = i + 1;
                     }
-                    w.write(s, offset, i-offset);
-                    w.write(System.lineSeparator());
-                    offset = i+1;
                 }
+                w.append(s, segmentStart, end);
             }
         } catch (IOException ex) {
             throw IORuntimeException.create(ex);
@@ -93,6 +142,31 @@ public final class VUWriterWrapper
         }
     }
 
+    private static void writeSeparated(@NotNull Writer w, @NotNull String s, int start, int end)
+      throws IOException
+    {
+        for (;;) {
+            int i = indexOfNewline(s, start, end);
+            if (i < 0) {
+                w.write(s, start, end - start);
+                return;
+            }
+            w.write(s, start, i - start);
+            w.write(System.lineSeparator());
+            start = i + 1;
+        }
+    }
+
+    private static int indexOfNewline(@NotNull String s, int start, int end)
+    {
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private @NotNull Writer check()
     {
         if (w == null) {
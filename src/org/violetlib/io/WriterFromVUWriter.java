@@ -14,6 +14,9 @@ import org.jetbrains.annotations.*;
 
 /**
   A {@link java.io.Writer} that writes to a {@link org.violetlib.io.VUWriter}.
+  <p>
+  All of the writing methods of {@link Writer} are overridden to pass the text directly to the target, so that text is
+  not copied into intermediate strings or buffers.
 */
 
 public class WriterFromVUWriter
@@ -31,13 +34,60 @@ public class WriterFromVUWriter
         this.target = target;
     }
 
+    @Override
+    public void write(int c)
+    {
+        target.write((char) c);
+    }
+
     @Override
     public void write(char @NotNull [] chars, int offset, int len)
     {
-        String s = new String(chars, offset, len);
+        target.write(chars, offset, len);
+    }
+
+    @Override
+    public void write(@NotNull String s)
+    {
         target.write(s);
     }
 
+    @Override
+    public void write(@NotNull String s, int offset, int len)
+    {
+        target.write(s, offset, offset + len);
+    }
+
+    @Override
+    public @NotNull Writer append(@Nullable CharSequence s)
+    {
+        if (s == null) {
+            target.write("null");
+        } else if (s instanceof String) {
+            target.write((String) s);
+        } else {
+            target.write(s, 0, s.length());
+        }
+        return this;
+    }
+
+    @Override
+    public @NotNull Writer append(@Nullable CharSequence s, int start, int end)
+    {
+        if (s == null) {
+            s = "null";
+        }
+        target.write(s, start, end);
+        return this;
+    }
+
+    @Override
+    public @NotNull Writer append(char c)
+    {
+        target.write(c);
+        return this;
+    }
+
     @Override
     public void flush()
     {
@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.io.VUWriter;
+
+/**
+  A reporter that delivers messages to another reporter or to a writer on a background thread, so that a slow sink
+  does not delay the reporting threads.
+  <p>
+  Reported messages are placed in a bounded ring buffer that does not use locks. A single consumer thread removes the
+  messages in batches and delivers them to the sink in the order they were reported. When the sink is a writer, it is
+  flushed after each batch. The behavior when the buffer is full is determined by the {@link OverflowPolicy}.
+  <p>
+  Formatted messages are constructed on the consumer thread, not on the reporting thread. A formatted message that
+  cannot be constructed is replaced by a warning that describes the failure.
+  <p>
+  The {@link #flush} method waits until the messages reported before it was called have been delivered. The
+  {@link #close} method waits until all messages have been delivered and stops the consumer thread; messages reported
+  after the reporter is closed, or concurrently with the call to {@code close}, may be discarded.
+*/
+
+public final class AsynchronousReporter
+  implements SimpleReporter, AutoCloseable
+{
+    /**
+      The behavior when a message is reported and the buffer is full.
+    */
+
+    public enum OverflowPolicy
+    {
+        /** The reporting thread waits until there is room in the buffer. */
+        BLOCK,
+        /** The message is discarded. */
+        DISCARD,
+        /** The message is discarded. The number of discarded messages is reported to the sink as a warning. */
+        DISCARD_AND_COUNT
+    }
+
+    /**
+      Create a reporter that delivers messages to another reporter.
+
+      @param sink The reporter that receives the messages. It is invoked only on the consumer thread.
+      @param capacity The capacity of the buffer. It is rounded up to a power of two.
+      @param policy The behavior when a message is reported and the buffer is full.
+    */
+
+    public static @NotNull AsynchronousReporter create(@NotNull SimpleReporter sink,
+                                                       int capacity,
+                                                       @NotNull OverflowPolicy policy)
+    {
+        AsynchronousReporter r = new AsynchronousReporter(sink, null, capacity, policy);
+        r.start();
+        return r;
+    }
+
+    /**
+      Create a reporter that writes messages to a writer, one per line. Errors and warnings are labeled.
+
+      @param sink The writer that receives the messages. It is invoked only on the consumer thread.
+      @param capacity The capacity of the buffer. It is rounded up to a power of two.
+      @param policy The behavior when a message is reported and the buffer is full.
+    */
+
+    public static @NotNull AsynchronousReporter create(@NotNull VUWriter sink,
+                                                       int capacity,
+                                                       @NotNull OverflowPolicy policy)
+    {
+        AsynchronousReporter r = new AsynchronousReporter(new WriterReporter(sink), sink, capacity, policy);
+        r.start();
+        return r;
+    }
+
+    private static final byte ERROR = 0;
+    private static final byte WARNING = 1;
+    private static final byte INFO = 2;
+
+    private final @NotNull SimpleReporter sink;
+    private final @Nullable VUWriter writer;
+    private final @NotNull OverflowPolicy policy;
+
+    // The ring buffer: a slot may be written when its sequence equals the claimed position, and read when its
+    // sequence equals the position plus one.
+    private final int mask;
+    private final @NotNull AtomicLongArray sequences;
+    private final byte @NotNull [] kinds;
+    private final @Nullable Object @NotNull [] messages;
+    private final @NotNull AtomicLong tail = new AtomicLong();
+    private long head;  // used only by the consumer thread
+
+    private final @NotNull Thread consumer;
+    private volatile boolean isConsumerWaiting;
+    private volatile boolean isClosed;
+    private volatile long delivered;
+    private final @NotNull AtomicLong discarded = new AtomicLong();
+    private long discardedReported;  // used only by the consumer thread
+    private final @NotNull AtomicInteger flushWaiters = new AtomicInteger();
+    private final @NotNull Object progressLock = new Object();
+
+    private AsynchronousReporter(@NotNull SimpleReporter sink,
+                                 @Nullable VUWriter writer,
+                                 int capacity,
+                                 @NotNull OverflowPolicy policy)
+    {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.sink = sink;
+        this.writer = writer;
+        this.policy = policy;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.kinds = new byte[size];
+        this.messages = new Object[size];
+        this.consumer = new Thread(this::consume, "AsynchronousReporter");
+        consumer.setDaemon(true);
+    }
+
+    private void start()
+    {
+        consumer.start();
+    }
+
+    @Override
+    public void error(@NotNull String message)
+    {
+        put(ERROR, message);
+    }
+
+    @Override
+    public void warning(@NotNull String message)
+    {
+        put(WARNING, message);
+    }
+
+    @Override
+    public void info(@NotNull String message)
+    {
+        put(INFO, message);
+    }
+
+    /**
+      Report an error. The message is constructed on the consumer thread.
+    */
+
+    @Override
+    public void error(@NotNull FormattedMessage message)
+    {
+        put(ERROR, message);
+    }
+
+    /**
+      Issue a warning. The message is constructed on the consumer thread.
+    */
+
+    @Override
+    public void warning(@NotNull FormattedMessage message)
+    {
+        put(WARNING, message);
+    }
+
+    /**
+      Report information. The message is constructed on the consumer thread.
+    */
+
+    @Override
+    public void info(@NotNull FormattedMessage message)
+    {
+        put(INFO, message);
+    }
+
+    @Override
+    public boolean isErrorEnabled()
+    {
+        return sink.isErrorEnabled();
+    }
+
+    @Override
+    public boolean isWarningEnabled()
+    {
+        return sink.isWarningEnabled();
+    }
+
+    @Override
+    public boolean isInfoEnabled()
+    {
+        return sink.isInfoEnabled();
+    }
+
+    /**
+      Return the number of messages that have been discarded because the buffer was full or the reporter was closed.
+    */
+
+    public long getDiscardedCount()
+    {
+        return discarded.get();
+    }
+
+    /**
+      Wait until the messages reported before this method was called have been delivered to the sink. If the current
+      thread is interrupted, this method returns immediately with the interrupt status set.
+    */
+
+    public void flush()
+    {
+        long target = tail.get();
+        if (delivered >= target) {
+            return;
+        }
+        flushWaiters.incrementAndGet();
+        try {
+            LockSupport.unpark(consumer);
+            synchronized (progressLock) {
+                while (delivered < target && consumer.isAlive()) {
+                    progressLock.wait(100);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flushWaiters.decrementAndGet();
+        }
+    }
+
+    /**
+      Wait until all reported messages have been delivered to the sink and stop the consumer thread. Messages reported
+      after this method is called are discarded. If the current thread is interrupted, this method returns immediately
+      with the interrupt status set.
+    */
+
+    @Override
+    public void close()
+    {
+        isClosed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void put(byte kind, @NotNull Object message)
+    {
+        if (isClosed) {
+            discarded.incrementAndGet();
+            return;
+        }
+
+        long position = tail.get();
+        int index;
+        for (;;) {
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The buffer is full
+                if (policy != OverflowPolicy.BLOCK || isClosed) {
+                    discarded.incrementAndGet();
+                    return;
+                }
+                LockSupport.unpark(consumer);
+                LockSupport.parkNanos(this, 50_000);
+                position = tail.get();
+            } else {
+                position = tail.get();
+            }
+        }
+
+        kinds[index] = kind;
+        messages[index] = message;
+        // A volatile write is required so that the following read of isConsumerWaiting cannot be reordered before it
+        sequences.set(index, position + 1);
+        if (isConsumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void consume()
+    {
+        for (;;) {
+            int count = deliverBatch();
+            if (count == 0) {
+                if (isClosed && isEmpty()) {
+                    break;
+                }
+                isConsumerWaiting = true;
+                if (isEmpty() && !isClosed) {
+                    LockSupport.parkNanos(this, 100_000_000L);
+                }
+                isConsumerWaiting = false;
+            }
+        }
+        synchronized (progressLock) {
+            progressLock.notifyAll();
+        }
+    }
+
+    private boolean isEmpty()
+    {
+        int index = (int) head & mask;
+        return sequences.get(index) != head + 1;
+    }
+
+    private int deliverBatch()
+    {
+        int count = 0;
+        int limit = mask + 1;
+        while (count < limit) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            byte kind = kinds[index];
+            Object message = messages[index];
+            messages[index] = null;
+            sequences.lazySet(index, head + limit);
+            head++;
+            count++;
+            deliver(kind, message);
+        }
+
+        if (policy == OverflowPolicy.DISCARD_AND_COUNT) {
+            long n = discarded.get();
+            if (n > discardedReported) {
+                deliver(WARNING, (n - discardedReported) + " messages were discarded");
+                discardedReported = n;
+            }
+        }
+
+        if (count > 0) {
+            if (writer != null) {
+                try {
+                    writer.flush();
+                } catch (Throwable ignore) {
+                }
+            }
+            delivered = head;
+            if (flushWaiters.get() > 0) {
+                synchronized (progressLock) {
+                    progressLock.notifyAll();
+                }
+            }
+        }
+        return count;
+    }
+
+    private void deliver(byte kind, @Nullable Object message)
+    {
+        assert message != null;
+
+        // A message that cannot be constructed or a failing sink must not stop the delivery of subsequent messages
+        String s;
+        try {
+            s = message.toString();
+        } catch (Throwable ex) {
+            kind = WARNING;
+            s = "Unable to construct message: " + ex;
+        }
+        try {
+            if (kind == ERROR) {
+                sink.error(s);
+            } else if (kind == WARNING) {
+                sink.warning(s);
+            } else {
+                sink.info(s);
+            }
+        } catch (Throwable ignore) {
+        }
+    }
+
+    /**
+      A reporter that writes messages to a writer, one per line.
+    */
+
+    private static final class WriterReporter
+      implements SimpleReporter
+    {
+        private final @NotNull VUWriter w;
+
+        WriterReporter(@NotNull VUWriter w)
+        {
+            this.w = w;
+        }
+
+        @Override
+        public void error(@NotNull String message)
+        {
+            w.write("Error: ");
+            w.writeln(message);
+        }
+
+        @Override
+        public void warning(@NotNull String message)
+        {
+            w.write("Warning: ");
+            w.writeln(message);
+        }
+
+        @Override
+        public void info(@NotNull String message)
+        {
+            w.writeln(message);
+        }
+    }
+}
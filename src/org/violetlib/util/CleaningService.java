@@ -8,13 +8,45 @@
 
 package org.violetlib.util;
 
-import java.lang.reflect.Method;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
 
 import org.jetbrains.annotations.*;
+import org.violetlib.annotations.Immutable;
 import org.violetlib.annotations.NoInstances;
 
 /**
-  A wrapper around the JDK 8 and JDK 9+ Cleaners.
+  A service that runs cleaning actions when objects become phantom reachable.
+  <p>
+  This service is implemented directly using phantom references; it does not depend on the JDK 8 or JDK 9+ Cleaners.
+  Registrations are distributed across one or more shards. Each shard has its own reference queue, its own lock, and
+  its own daemon thread that runs the cleaning actions. The number of shards can be configured using
+  {@link #setThreadCount} before the service is first used.
+  <p>
+  Cleaning actions should not refer to the objects they clean. Exceptions thrown by cleaning actions are ignored.
+  <p>
+  Optional instrumentation is available. When metrics are enabled using {@link #setMetricsEnabled}, the service counts
+  the registered actions, the actions run explicitly, and the actions run because the object was collected, and it
+  records the delay from registration to cleaning in a histogram. A {@link LeakListener} can be installed to receive
+  the registration stack trace of a sample of the objects that were collected without being cleaned explicitly.
+  <p>
+  The {@link #drain} method runs pending cleaning actions on the calling thread, so that a client that is short of
+  memory or native resources need not wait for the cleaner threads to be scheduled. A memory pressure trigger that
+  drains the service when heap usage crosses a threshold can be installed using {@link #setMemoryPressureTrigger}.
 */
 
 public final @NoInstances class CleaningService
@@ -29,13 +61,293 @@ public final @NoInstances class CleaningService
       @param action The action to run when {@code o} becomes phantom reachable.
       @return an object that can be used to explicitly run the cleaning action. If the cleaning action is run
         explicitly, then it is not run again after the object becomes phantom reachable.
-      @throws UnsupportedOperationException if this service is not supported.
     */
 
     public static @NotNull Cleanable create(@NotNull Object o, @NotNull Runnable action)
-      throws UnsupportedOperationException
     {
-        return getImpl().create(o, action);
+        Shard[] ss = getShards();
+        Shard shard = ss.length == 1 ? ss[0] : ss[ThreadLocalRandom.current().nextInt(ss.length)];
+        return shard.register(o, action);
+    }
+
+    /**
+      Run the cleaning actions of all objects that have been collected and are waiting for a cleaner thread. The
+      actions are run on the calling thread. Objects that have become phantom reachable but have not yet been
+      identified as such by the garbage collector are not affected.
+
+      @return the number of cleaning actions that were run.
+    */
+
+    public static int drain()
+    {
+        Shard[] ss = shards;
+        if (ss == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Shard shard : ss) {
+            count += shard.drain();
+        }
+        return count;
+    }
+
+    /**
+      Install a trigger that drains this service when heap memory is short. The trigger sets the usage threshold and
+      the collection usage threshold of each heap memory pool that supports them, and calls {@link #drain} when it is
+      notified that a threshold has been exceeded. The draining is performed on the thread that delivers memory
+      notifications.
+      <p>
+      Memory pool thresholds are shared by all clients of the pool. Installing this trigger replaces any thresholds
+      set by other code.
+
+      @param fraction The threshold, as a fraction of the maximum size of each memory pool.
+      @return true if the trigger was installed, false if no heap memory pool supports thresholds.
+      @throws IllegalArgumentException if {@code fraction} is not between zero and one.
+    */
+
+    public static boolean setMemoryPressureTrigger(double fraction)
+      throws IllegalArgumentException
+    {
+        if (!(fraction > 0 && fraction < 1)) {
+            throw new IllegalArgumentException("Invalid threshold: " + fraction);
+        }
+
+        synchronized (lock) {
+            boolean isSupported = false;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                long max = pool.getUsage().getMax();
+                if (pool.getType() == MemoryType.HEAP && max > 0) {
+                    long threshold = (long) (max * fraction);
+                    if (pool.isUsageThresholdSupported()) {
+                        pool.setUsageThreshold(threshold);
+                        isSupported = true;
+                    }
+                    if (pool.isCollectionUsageThresholdSupported()) {
+                        pool.setCollectionUsageThreshold(threshold);
+                        isSupported = true;
+                    }
+                }
+            }
+
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            if (isSupported && memoryListener == null && memory instanceof NotificationEmitter) {
+                NotificationListener listener = CleaningService::memoryNotification;
+                ((NotificationEmitter) memory).addNotificationListener(listener, null, null);
+                memoryListener = listener;
+            }
+            return isSupported && memoryListener != null;
+        }
+    }
+
+    /**
+      Remove the memory pressure trigger, if installed. The usage thresholds and collection usage thresholds of the
+      heap memory pools are cleared.
+    */
+
+    public static void clearMemoryPressureTrigger()
+    {
+        synchronized (lock) {
+            NotificationListener listener = memoryListener;
+            if (listener != null) {
+                memoryListener = null;
+                try {
+                    ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(listener);
+                } catch (ListenerNotFoundException ignore) {
+                }
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    if (pool.getType() == MemoryType.HEAP) {
+                        if (pool.isUsageThresholdSupported()) {
+                            pool.setUsageThreshold(0);
+                        }
+                        if (pool.isCollectionUsageThresholdSupported()) {
+                            pool.setCollectionUsageThreshold(0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void memoryNotification(@NotNull Notification n, @Nullable Object handback)
+    {
+        String type = n.getType();
+        if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)
+          || MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) {
+            drain();
+        }
+    }
+
+    /**
+      Enable or disable the collection of metrics. Only actions registered while metrics are enabled are counted.
+
+      @param b If true, metrics are collected for subsequent registrations.
+      @see #getStatistics
+    */
+
+    public static void setMetricsEnabled(boolean b)
+    {
+        isMetricsEnabled = b;
+    }
+
+    /**
+      Return a snapshot of the metrics collected since metrics were first enabled.
+    */
+
+    public static @NotNull Statistics getStatistics()
+    {
+        long[] histogram = new long[DELAY_BUCKETS];
+        for (int i = 0; i < DELAY_BUCKETS; i++) {
+            histogram[i] = delayHistogram[i].sum();
+        }
+        return new Statistics(registeredCount.sum(), explicitCount.sum(), collectedCount.sum(), histogram);
+    }
+
+    /**
+      Install a listener to be notified when a sampled object is collected without its cleaning action having been run
+      explicitly. A stack trace is recorded when a sampled object is registered, which is expensive; the sampling
+      interval limits that cost.
+
+      @param listener The listener, or null to stop leak reporting.
+      @param sampleInterval On average, one of every {@code sampleInterval} registrations is sampled.
+      @throws IllegalArgumentException if {@code sampleInterval} is not positive.
+    */
+
+    public static void setLeakListener(@Nullable LeakListener listener, int sampleInterval)
+      throws IllegalArgumentException
+    {
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("Invalid sample interval: " + sampleInterval);
+        }
+        synchronized (lock) {
+            leakSampleInterval = sampleInterval;
+            leakListener = listener;
+        }
+    }
+
+    /**
+      A listener that is notified when a sampled object is collected without its cleaning action having been run
+      explicitly. The listener is called on a cleaner thread, after the cleaning action has run. It should return
+      promptly.
+    */
+
+    public interface LeakListener
+    {
+        /**
+          Report an object that was not cleaned explicitly.
+
+          @param registration An exception whose stack trace identifies where the object was registered. Its message
+          identifies the class of the object.
+        */
+
+        void leaked(@NotNull Throwable registration);
+    }
+
+    /**
+      A snapshot of the cleaning service metrics.
+    */
+
+    public static final @Immutable class Statistics
+    {
+        private final long registered;
+        private final long explicitlyCleaned;
+        private final long collected;
+        private final long @NotNull [] delayHistogram;
+
+        private Statistics(long registered, long explicitlyCleaned, long collected, long @NotNull [] delayHistogram)
+        {
+            this.registered = registered;
+            this.explicitlyCleaned = explicitlyCleaned;
+            this.collected = collected;
+            this.delayHistogram = delayHistogram;
+        }
+
+        /**
+          Return the number of cleaning actions registered while metrics were enabled.
+        */
+
+        public long getRegisteredCount()
+        {
+            return registered;
+        }
+
+        /**
+          Return the number of counted cleaning actions that were run explicitly.
+        */
+
+        public long getExplicitlyCleanedCount()
+        {
+            return explicitlyCleaned;
+        }
+
+        /**
+          Return the number of counted cleaning actions that were run because the object was collected.
+        */
+
+        public long getCollectedCount()
+        {
+            return collected;
+        }
+
+        /**
+          Return the number of counted cleaning actions that have not been run.
+        */
+
+        public long getPendingCount()
+        {
+            return registered - explicitlyCleaned - collected;
+        }
+
+        /**
+          Return a histogram of the delay from registration to cleaning. Element {@code i} is the number of counted
+          cleaning actions whose delay {@code d}, in nanoseconds, satisfies {@code 2^i <= d < 2^(i+1)}. Element zero
+          also includes delays of zero.
+        */
+
+        public long @NotNull [] getDelayHistogram()
+        {
+            return delayHistogram.clone();
+        }
+
+        @Override
+        public @NotNull String toString()
+        {
+            return "Registered: " + registered + " Explicitly cleaned: " + explicitlyCleaned
+              + " Collected: " + collected;
+        }
+    }
+
+    /**
+      Specify the number of threads used to run cleaning actions. Each thread serves its own share of the registered
+      objects. The default is one thread.
+
+      @param count The number of threads.
+      @throws IllegalArgumentException if {@code count} is not positive.
+      @throws IllegalStateException if the service has already been used.
+    */
+
+    public static void setThreadCount(int count)
+      throws IllegalArgumentException, IllegalStateException
+    {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Invalid thread count: " + count);
+        }
+        synchronized (lock) {
+            if (shards != null) {
+                throw new IllegalStateException("The cleaning service has already been started");
+            }
+            threadCount = count;
+        }
+    }
+
+    /**
+      Return the number of threads used to run cleaning actions.
+    */
+
+    public static int getThreadCount()
+    {
+        synchronized (lock) {
+            return threadCount;
+        }
     }
 
     /**
@@ -52,99 +364,251 @@ public final @NoInstances class CleaningService
         void clean();
     }
 
-    private static @Nullable CleanerImpl cleanerImpl;
+    private static final @NotNull Object lock = new Object();
+    private static int threadCount = 1;
+    private static volatile @NotNull Shard @Nullable [] shards;
+
+    private static final int DELAY_BUCKETS = 64;
+    private static volatile boolean isMetricsEnabled;
+    private static final @NotNull LongAdder registeredCount = new LongAdder();
+    private static final @NotNull LongAdder explicitCount = new LongAdder();
+    private static final @NotNull LongAdder collectedCount = new LongAdder();
+    private static final @NotNull LongAdder @NotNull [] delayHistogram = createHistogram();
+    private static volatile @Nullable LeakListener leakListener;
+    private static volatile int leakSampleInterval = 1;
+    private static @Nullable NotificationListener memoryListener;
 
-    private static synchronized @NotNull CleanerImpl getImpl()
+    private static @NotNull LongAdder @NotNull [] createHistogram()
     {
-        if (cleanerImpl == null) {
-            cleanerImpl = createImpl();
+        LongAdder[] histogram = new LongAdder[DELAY_BUCKETS];
+        for (int i = 0; i < DELAY_BUCKETS; i++) {
+            histogram[i] = new LongAdder();
         }
-        return cleanerImpl;
+        return histogram;
     }
 
-    private static @NotNull CleanerImpl createImpl()
+    private static void recordCleaning(long registrationTime, boolean isCollected)
     {
-        CleanerImpl c = createImpl9();
-        if (c != null) {
-            return c;
-        }
-        c = createImpl8();
-        if (c != null) {
-            return c;
-        }
-        throw new UnsupportedOperationException("Unable to create the CleaningService implementation");
+        long delay = Math.max(0, System.nanoTime() - registrationTime);
+        int bucket = delay == 0 ? 0 : 63 - Long.numberOfLeadingZeros(delay);
+        delayHistogram[bucket].increment();
+        (isCollected ? collectedCount : explicitCount).increment();
     }
 
-    private static @Nullable CleanerImpl createImpl8()
+    private static @Nullable Throwable sampleRegistration(@NotNull Object o)
     {
-        try {
-            Class<?> cleaner8class = Class.forName("sun.misc.Cleaner");
-            Method createMethod = cleaner8class.getMethod("create", Object.class, Runnable.class);
-            Method cleanMethod = cleaner8class.getMethod("clean");
-            return new CleanerImpl(null, createMethod, cleanMethod);
-        } catch (Throwable ignore) {
-            return null;
+        if (leakListener != null) {
+            int interval = leakSampleInterval;
+            if (interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0) {
+                Throwable t = new Throwable("Registration of an instance of " + o.getClass().getName());
+                // Remove the frames of this class so that the trace begins with the caller of create
+                StackTraceElement[] trace = t.getStackTrace();
+                String prefix = CleaningService.class.getName();
+                int start = 0;
+                while (start < trace.length && trace[start].getClassName().startsWith(prefix)) {
+                    start++;
+                }
+                t.setStackTrace(Arrays.copyOfRange(trace, start, trace.length));
+                return t;
+            }
         }
+        return null;
     }
 
-    private static @Nullable CleanerImpl createImpl9()
+    private static @NotNull Shard @NotNull [] getShards()
     {
-        try {
-            Class<?> cleaner9class = Class.forName("java.lang.ref.Cleaner");
-            Method createCleanerMethod = cleaner9class.getMethod("create");
-            Object cleaner = createCleanerMethod.invoke(null);
-            Method createMethod = cleaner9class.getMethod("register", Object.class, Runnable.class);
-            Class<?> cleanableType = createMethod.getReturnType();
-            Method cleanMethod = cleanableType.getMethod("clean");
-            return new CleanerImpl(cleaner, createMethod, cleanMethod);
-        } catch (Throwable ignore) {
-            return null;
+        Shard[] ss = shards;
+        if (ss == null) {
+            synchronized (lock) {
+                ss = shards;
+                if (ss == null) {
+                    ss = new Shard[threadCount];
+                    for (int i = 0; i < ss.length; i++) {
+                        ss[i] = new Shard(i + 1);
+                    }
+                    shards = ss;
+                }
+            }
         }
+        return ss;
     }
 
-    private static class CleanerImpl
+    /**
+      A shard owns a reference queue and a thread that processes it. Registered references are kept in a doubly
+      linked list so that they remain reachable until they are cleaned.
+    */
+
+    private static final class Shard
     {
-        private final @Nullable Object target;
-        private final @NotNull Method createMethod;
-        private final @NotNull Method cleanMethod;
+        private final @NotNull ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        private final @NotNull CleanableReference list = new CleanableReference();  // the list head
 
-        public CleanerImpl(@Nullable Object target, @NotNull Method createMethod, @NotNull Method cleanMethod)
+        Shard(int index)
         {
-            this.target = target;
-            this.createMethod = createMethod;
-            this.cleanMethod = cleanMethod;
+            Thread t = new Thread(this::run, "CleaningService-" + index);
+            t.setDaemon(true);
+            t.setPriority(Thread.MAX_PRIORITY - 2);
+            t.start();
         }
 
-        public @NotNull Cleanable create(@NotNull Object o, @NotNull Runnable action)
+        @NotNull Cleanable register(@NotNull Object o, @NotNull Runnable action)
         {
-            try {
-                Object c = createMethod.invoke(target, o, action);
-                return new CleanableImpl(c, cleanMethod);
-            } catch (Throwable ex) {
-                throw new UnsupportedOperationException("Unable to create cleanable object", ex);
+            CleanableReference r = new CleanableReference(o, queue, this, action);
+            if (isMetricsEnabled) {
+                r.isCounted = true;
+                r.registrationTime = System.nanoTime();
+                registeredCount.increment();
+            }
+            r.registration = sampleRegistration(o);
+            boolean isCollected;
+            synchronized (this) {
+                // The object may have been collected before the reference is linked
+                isCollected = r.state == CleanableReference.PENDING;
+                if (isCollected) {
+                    r.state = CleanableReference.REMOVED;
+                } else {
+                    CleanableReference first = list.next;
+                    r.next = first;
+                    r.prev = list;
+                    first.prev = r;
+                    list.next = r;
+                    r.state = CleanableReference.LINKED;
+                }
+            }
+            if (isCollected) {
+                r.runAction(true);
+            }
+            return r;
+        }
+
+        /**
+          Remove a reference from the list. If the reference has not yet been linked, it is marked so that the
+          registering thread runs the cleaning action once the registration is complete.
+          @return true if the reference was removed, false if it had already been removed or has not been linked.
+        */
+
+        synchronized boolean remove(@NotNull CleanableReference r)
+        {
+            if (r.state != CleanableReference.LINKED) {
+                if (r.state == CleanableReference.UNLINKED) {
+                    r.state = CleanableReference.PENDING;
+                }
+                return false;
+            }
+            r.prev.next = r.next;
+            r.next.prev = r.prev;
+            r.next = r;
+            r.prev = r;
+            r.state = CleanableReference.REMOVED;
+            return true;
+        }
+
+        /**
+          Run the cleaning actions of the references in the queue on the calling thread.
+          @return the number of references processed.
+        */
+
+        int drain()
+        {
+            int count = 0;
+            Reference<?> ref;
+            while ((ref = queue.poll()) != null) {
+                if (ref instanceof CleanableReference) {
+                    ((CleanableReference) ref).clean(true);
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private void run()
+        {
+            for (;;) {
+                try {
+                    Reference<?> ref = queue.remove();
+                    if (ref instanceof CleanableReference) {
+                        ((CleanableReference) ref).clean(true);
+                    }
+                } catch (Throwable ignore) {
+                    // keep running
+                }
             }
         }
     }
 
-    private static class CleanableImpl
+    private static final class CleanableReference
+      extends PhantomReference<Object>
       implements Cleanable
     {
-        private final @NotNull Object o;
-        private final @NotNull Method m;
+        private final @Nullable Shard shard;
+        private final @Nullable Runnable action;
+        static final int UNLINKED = 0;
+        static final int LINKED = 1;
+        static final int PENDING = 2;  // collected before it was linked
+        static final int REMOVED = 3;
+        int state;  // guarded by the shard
+        @NotNull CleanableReference prev = this;
+        @NotNull CleanableReference next = this;
+        boolean isCounted;
+        long registrationTime;
+        @Nullable Throwable registration;
 
-        public CleanableImpl(@NotNull Object o, @NotNull Method m)
+        /**
+          Create a list head.
+        */
+
+        CleanableReference()
         {
-            this.o = o;
-            this.m = m;
+            super(null, null);
+            this.shard = null;
+            this.action = null;
+        }
+
+        CleanableReference(@NotNull Object o,
+                           @NotNull ReferenceQueue<Object> queue,
+                           @NotNull Shard shard,
+                           @NotNull Runnable action)
+        {
+            super(o, queue);
+            this.shard = shard;
+            this.action = action;
         }
 
         @Override
         public void clean()
         {
+            clean(false);
+        }
+
+        void clean(boolean isCollected)
+        {
+            assert shard != null;
+            if (shard.remove(this)) {
+                runAction(isCollected);
+            }
+        }
+
+        void runAction(boolean isCollected)
+        {
+            assert action != null;
+            clear();
             try {
-                m.invoke(o);
+                action.run();
             } catch (Throwable ignore) {
             }
+            if (isCounted) {
+                recordCleaning(registrationTime, isCollected);
+            }
+            Throwable t = registration;
+            if (t != null && isCollected) {
+                LeakListener listener = leakListener;
+                if (listener != null) {
+                    try {
+                        listener.leaked(t);
+                    } catch (Throwable ignore) {
+                    }
+                }
+            }
         }
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.*;
+
+/**
+  A message reporter that collects messages from concurrent threads. Messages are separated by newlines. Use the
+  {@code messages} method to obtain the available messages.
+  <p>
+  Each reporting thread appends to its own segment, so reporting threads do not contend with each other. The segments
+  are merged when {@code messages} is called. In the default mode, the messages from each thread appear together, in
+  the order they were reported by that thread. In the ordered mode, each message is assigned a sequence number when it
+  is reported, and the merged messages appear in sequence order.
+  <p>
+  A message that is reported concurrently with a call to {@code messages} may or may not be included.
+
+  @see StringMessageReporter
+*/
+
+public final class ConcurrentMessageReporter
+  implements MessageReporter
+{
+    /**
+      Create a reporter that groups the messages by the reporting thread.
+    */
+
+    public static @NotNull ConcurrentMessageReporter create()
+    {
+        return new ConcurrentMessageReporter(false);
+    }
+
+    /**
+      Create a reporter that returns the messages in the order they were reported.
+    */
+
+    public static @NotNull ConcurrentMessageReporter createOrdered()
+    {
+        return new ConcurrentMessageReporter(true);
+    }
+
+    private final boolean isOrdered;
+    private final @NotNull AtomicLong sequence = new AtomicLong();
+    // A thread local would retain the segments of pool threads after the reporter is discarded
+    private final @NotNull Map<Thread, Segment> threadSegments = new ConcurrentHashMap<>();
+    private final @NotNull Queue<Segment> segments = new ConcurrentLinkedQueue<>();  // in order of first report
+
+    private ConcurrentMessageReporter(boolean isOrdered)
+    {
+        this.isOrdered = isOrdered;
+    }
+
+    @Override
+    public void info(@NotNull String message)
+    {
+        Thread thread = Thread.currentThread();
+        Segment segment = threadSegments.get(thread);
+        if (segment == null) {
+            // Only this thread adds a segment for itself
+            segment = new Segment(isOrdered);
+            threadSegments.put(thread, segment);
+            segments.add(segment);
+        }
+        long n = isOrdered ? sequence.getAndIncrement() : 0;
+        segment.add(message, n);
+    }
+
+    public @NotNull String messages()
+    {
+        return isOrdered ? orderedMessages() : groupedMessages();
+    }
+
+    private @NotNull String groupedMessages()
+    {
+        List<String> all = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.copyMessages(all);
+        }
+        return join(all.toArray(new String[0]));
+    }
+
+    private @NotNull String orderedMessages()
+    {
+        // Sequence numbers are dense, so each message can be placed directly
+        long limit = sequence.get();
+        if (limit > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many messages");
+        }
+        String[] all = new String[(int) limit];
+        for (Segment segment : segments) {
+            segment.copyMessages(all);
+        }
+        return join(all);
+    }
+
+    private static @NotNull String join(@Nullable String @NotNull [] messages)
+    {
+        int length = 0;
+        for (String message : messages) {
+            if (message != null) {
+                length += message.length() + 1;
+            }
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (String message : messages) {
+            if (message != null) {
+                if (sb.length() > 0) {
+                    sb.append('\n');
+                }
+                sb.append(message);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+      The messages reported by one thread. The lock is contended only while the messages are being merged.
+    */
+
+    private static final class Segment
+    {
+        private final @NotNull List<String> messages = new ArrayList<>();
+        private long @Nullable [] sequenceNumbers;
+
+        Segment(boolean isOrdered)
+        {
+            sequenceNumbers = isOrdered ? new long[16] : null;
+        }
+
+        synchronized void add(@NotNull String message, long sequenceNumber)
+        {
+            if (sequenceNumbers != null) {
+                int index = messages.size();
+                if (index == sequenceNumbers.length) {
+                    sequenceNumbers = Arrays.copyOf(sequenceNumbers, index * 2);
+                }
+                sequenceNumbers[index] = sequenceNumber;
+            }
+            messages.add(message);
+        }
+
+        synchronized void copyMessages(@NotNull List<String> all)
+        {
+            all.addAll(messages);
+        }
+
+        synchronized void copyMessages(@Nullable String @NotNull [] all)
+        {
+            assert sequenceNumbers != null;
+            int count = messages.size();
+            for (int i = 0; i < count; i++) {
+                long n = sequenceNumbers[i];
+                if (n < all.length) {
+                    all[(int) n] = messages.get(i);
+                }
+            }
+        }
+    }
+}
@@ -33,6 +33,32 @@ public interface ErrorReporter
 
     void error(@NotNull String message);
 
+    /**
+      Report an error using a message whose construction is deferred until it is used.
+      <p>
+      The default implementation constructs the message and reports it using {@link #error(String)}. A reporter that
+      forwards messages should override this method to forward the message without constructing it.
+
+      @param message The error message.
+    */
+
+    default void error(@NotNull FormattedMessage message)
+    {
+        error(message.toString());
+    }
+
+    /**
+      Indicate whether this reporter uses the errors reported to it. If not, callers may avoid the cost of constructing
+      error messages.
+
+      @return false if errors are discarded, true otherwise. The default implementation returns true.
+    */
+
+    default boolean isErrorEnabled()
+    {
+        return true;
+    }
+
     /**
       Report an error using a constructed message.
 
@@ -46,7 +72,9 @@ public interface ErrorReporter
 
     default void formattedError(@NotNull String message, @NotNull Object... args)
     {
-        error(FormattedMessageSupport.constructMessage(false, message, args));
+        if (isErrorEnabled()) {
+            error(FormattedMessage.create(message, args));
+        }
     }
 
     /**
@@ -60,6 +88,33 @@ public interface ErrorReporter
         error(message);
     }
 
+    /**
+      Issue a warning using a message whose construction is deferred until it is used.
+      <p>
+      The default implementation constructs the message and issues it using {@link #warning(String)}. A reporter that
+      forwards messages should override this method to forward the message without constructing it.
+
+      @param message The warning message.
+    */
+
+    default void warning(@NotNull FormattedMessage message)
+    {
+        warning(message.toString());
+    }
+
+    /**
+      Indicate whether this reporter uses the warnings issued to it. If not, callers may avoid the cost of constructing
+      warning messages.
+
+      @return false if warnings are discarded, true otherwise. The default implementation returns the value of
+      {@link #isErrorEnabled}.
+    */
+
+    default boolean isWarningEnabled()
+    {
+        return isErrorEnabled();
+    }
+
     /**
       Issue a warning using a constructed message.
 
@@ -73,6 +128,8 @@ public interface ErrorReporter
 
     default void formattedWarning(@NotNull String message, @NotNull Object... args)
     {
-        warning(FormattedMessageSupport.constructMessage(false, message, args));
+        if (isWarningEnabled()) {
+            warning(FormattedMessage.create(message, args));
+        }
     }
 }
@@ -18,6 +18,7 @@ import org.jetbrains.annotations.*;
   supported using delegation.
 
   @see Extensions#getExtension
+  @see ExtensionCache
 */
 
 public interface Extensible
@@ -34,4 +35,27 @@ public interface Extensible
     */
 
     <T> @Nullable T getExtension(@NotNull Class<T> c);
+
+    /**
+      Return a set of extensions, if supported. An implementation that delegates to another object can override this
+      method to resolve the entire set in a single traversal of the delegation chain. The default implementation calls
+      {@link #getExtension} for each class.
+      <p>
+      Note: this method should not be called directly.
+      Use {@link Extensions#resolve}.
+
+      @param cs The classes or interfaces that designate the extensions. The array must not be modified.
+
+      @return an array with the same length as {@code cs}. Each element is the extension designated by the
+      corresponding element of {@code cs}, if supported, or null.
+    */
+
+    default @Nullable Object @NotNull [] getExtensions(@NotNull Class<?> @NotNull [] cs)
+    {
+        Object[] result = new Object[cs.length];
+        for (int i = 0; i < cs.length; i++) {
+            result[i] = getExtension(cs[i]);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.util;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.annotations.Immutable;
+
+/**
+  The result of resolving a set of extensions of an object in one pass.
+
+  @see Extensions#resolve
+*/
+
+public final @Immutable class ExtensionBundle
+{
+    /* package private */ static @NotNull ExtensionBundle create(@NotNull Class<?> @NotNull [] classes,
+                                                                 @Nullable Object @NotNull [] extensions)
+    {
+        return new ExtensionBundle(classes, extensions);
+    }
+
+    private final @NotNull Class<?> @NotNull [] classes;
+    private final @Nullable Object @NotNull [] extensions;
+
+    private ExtensionBundle(@NotNull Class<?> @NotNull [] classes, @Nullable Object @NotNull [] extensions)
+    {
+        assert classes.length == extensions.length;
+        this.classes = classes;
+        this.extensions = extensions;
+    }
+
+    /**
+      Return an extension, if supported.
+
+      @param c The class or interface that designates the extension. It should be one of the classes that were
+      resolved.
+
+      @return the extension, if {@code c} was resolved and the extension is supported, otherwise null.
+    */
+
+    public <T> @Nullable T get(@NotNull Class<T> c)
+    {
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i] == c) {
+                Object o = extensions[i];
+                return o != null ? c.cast(o) : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+      Determine whether an extension is supported.
+
+      @param c The class or interface that designates the extension.
+
+      @return true if {@code c} was resolved and the extension is supported, otherwise false.
+    */
+
+    public boolean supports(@NotNull Class<?> c)
+    {
+        return get(c) != null;
+    }
+
+    /**
+      Determine whether any of the resolved extensions is supported.
+    */
+
+    public boolean supportsAny()
+    {
+        for (Object o : extensions) {
+            if (o != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+      Return the number of resolved classes.
+    */
+
+    public int size()
+    {
+        return classes.length;
+    }
+
+    /**
+      Return the class at the specified position, in the order the classes were resolved.
+    */
+
+    public @NotNull Class<?> getType(int index)
+    {
+        return classes[index];
+    }
+
+    /**
+      Return the extension at the specified position, in the order the classes were resolved.
+
+      @return the extension, if supported, or null.
+    */
+
+    public @Nullable Object getExtension(int index)
+    {
+        return extensions[index];
+    }
+}
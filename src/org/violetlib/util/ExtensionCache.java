@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.*;
+
+/**
+  A memo table for the extensions of an object whose set of extensions does not change. An {@link Extensible}
+  implementation can use an extension cache to answer repeated requests for the same extension with a single hash
+  lookup, rather than evaluating its resolution logic (which may delegate to other objects) each time:
+  <pre>
+  private final ExtensionCache extensions = ExtensionCache.create(this::findExtension);
+
+  public &lt;T&gt; @Nullable T getExtension(@NotNull Class&lt;T&gt; c)
+  {
+      return extensions.getExtension(c);
+  }
+  </pre>
+  Both supported and unsupported extensions are remembered. The cache retains the extensions it returns.
+  <p>
+  This class is thread safe. If the resolver is called concurrently for the same class, it must return the same
+  result.
+*/
+
+public final class ExtensionCache
+{
+    /**
+      Create an extension cache.
+
+      @param resolver The resolver that locates extensions that are not in the cache, typically a method reference.
+      The resolver is called at most once for each class, except when concurrent requests race.
+    */
+
+    public static @NotNull ExtensionCache create(@NotNull Extensible resolver)
+    {
+        return new ExtensionCache(resolver);
+    }
+
+    private static final @NotNull Object NONE = new Object();
+
+    private final @NotNull Extensible resolver;
+    private final @NotNull ConcurrentHashMap<Class<?>,Object> extensions = new ConcurrentHashMap<>(8);
+
+    private ExtensionCache(@NotNull Extensible resolver)
+    {
+        this.resolver = resolver;
+    }
+
+    /**
+      Return an extension, if supported.
+
+      @param c The class or interface that designates the extension.
+
+      @return the extension, if supported, or null.
+    */
+
+    public <T> @Nullable T getExtension(@NotNull Class<T> c)
+    {
+        Object o = extensions.get(c);
+        if (o == null) {
+            o = resolver.getExtension(c);
+            if (o == null) {
+                o = NONE;
+            }
+            extensions.put(c, o);
+        }
+        return o != NONE ? c.cast(o) : null;
+    }
+
+    /**
+      Determine whether an extension is supported.
+
+      @param c The class or interface that designates the extension.
+
+      @return true if the extension is supported, otherwise false.
+    */
+
+    public boolean supports(@NotNull Class<?> c)
+    {
+        return getExtension(c) != null;
+    }
+}
@@ -69,6 +69,55 @@ public class Extensions
         return null;
     }
 
+    /**
+      Obtain a set of extensions in one pass. For each designated class or interface, if the object is an instance of
+      it, the object is the extension. The remaining extensions are requested from the object in a single call, if the
+      object supports the {@link Extensible} interface.
+
+      @param o The object.
+
+      @param cs The classes or interfaces that designate the extensions.
+
+      @return a bundle containing the supported extensions.
+    */
+
+    public static @NotNull ExtensionBundle resolve(@Nullable Object o, @NotNull Class<?>... cs)
+    {
+        Class<?>[] classes = cs.clone();
+        Object[] extensions = new Object[classes.length];
+        if (o != null) {
+            int missing = 0;
+            for (int i = 0; i < classes.length; i++) {
+                if (classes[i].isInstance(o)) {
+                    extensions[i] = o;
+                } else {
+                    missing++;
+                }
+            }
+
+            if (missing > 0 && o instanceof Extensible) {
+                // Request only the extensions that the object does not implement directly
+                int[] indexes = new int[missing];
+                Class<?>[] requested = new Class<?>[missing];
+                for (int i = 0, j = 0; i < classes.length; i++) {
+                    if (extensions[i] == null) {
+                        indexes[j] = i;
+                        requested[j++] = classes[i];
+                    }
+                }
+                Object[] found = ((Extensible) o).getExtensions(requested);
+                int count = Math.min(found.length, missing);
+                for (int j = 0; j < count; j++) {
+                    Object x = found[j];
+                    if (requested[j].isInstance(x)) {
+                        extensions[indexes[j]] = x;
+                    }
+                }
+            }
+        }
+        return ExtensionBundle.create(classes, extensions);
+    }
+
     /**
       Determine whether an object supports the specified extension.
 
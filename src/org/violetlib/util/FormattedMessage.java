@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.util;
+
+import org.jetbrains.annotations.*;
+
+/**
+  A message that is constructed from a template and arguments when it is needed. Reporters pass formatted messages to
+  their sinks without constructing the text, so that the cost of formatting is paid only if the message is actually
+  used.
+  <p>
+  The arguments are retained until the message is constructed, which may happen on another thread. They should not be
+  modified after the message is created.
+
+  @see FormattedMessageSupport#constructMessage
+*/
+
+public final class FormattedMessage
+{
+    /**
+      Create a formatted message.
+
+      <p>
+      The standard format specifiers are <q>{@code %q}</q>, to include quoted text, <q>{@code %s}</q>, to include
+      literal text, and <q>{@code %%}</q>, to include a percent sign.
+
+      @param template The basic message, which may include format specifiers.
+      @param args Arguments to include in the message, based on the format specifiers.
+    */
+
+    public static @NotNull FormattedMessage create(@NotNull String template, @NotNull Object... args)
+    {
+        return new FormattedMessage(template, args);
+    }
+
+    private final @NotNull String template;
+    private final @NotNull Object @NotNull [] args;
+    private @Nullable String text;
+
+    private FormattedMessage(@NotNull String template, @NotNull Object @NotNull [] args)
+    {
+        this.template = template;
+        this.args = args;
+    }
+
+    /**
+      Return the template used to construct the message.
+    */
+
+    public @NotNull String getTemplate()
+    {
+        return template;
+    }
+
+    /**
+      Return the message as HTML.
+    */
+
+    public @NotNull String toHTML()
+    {
+        return FormattedMessageSupport.constructMessage(true, template, args);
+    }
+
+    /**
+      Return the message as plain text. The text is constructed when this method is first called.
+    */
+
+    @Override
+    public @NotNull String toString()
+    {
+        String s = text;
+        if (s == null) {
+            s = FormattedMessageSupport.constructMessage(false, template, args);
+            text = s;
+        }
+        return s;
+    }
+}
@@ -8,8 +8,12 @@
 
 package org.violetlib.util;
 
+import java.io.IOException;
+
 import org.jetbrains.annotations.*;
 import org.violetlib.annotations.NoInstances;
+import org.violetlib.io.VUWriter;
+import org.violetlib.types.IORuntimeException;
 
 /**
 
@@ -41,6 +45,9 @@ public final @NoInstances class FormattedMessageSupport
       assumed to be in the proper format already.
       <p>
       To include a percent sign in the message, use <code>&quot;%%&quot;</code>.
+      <p>
+      The message is compiled into a {@link MessageTemplate} the first time it is used. Compiled templates are cached,
+      so repeated use of the same message does not parse it again.
 
       @param useHTML If true, the returned message is in HTML. Otherwise, the returned message is plain text.
       @param msg The basic plain text message.
@@ -48,119 +55,85 @@ public final @NoInstances class FormattedMessageSupport
       included in the returned message as described above, replacing the corresponding marker.
 
       @return the constructed message.
+      @throws IllegalArgumentException if {@code msg} ends with an incomplete marker.
     */
 
     public static @NotNull String constructMessage(boolean useHTML, @NotNull String msg, @NotNull Object[] args)
     {
-        StringBuilder sb = new StringBuilder();
-        int nextArg = 0;
-        int mlen = msg.length();
-        boolean leadingSpace = true;
-
-        for (int i = 0; i < mlen; ) {
-            char ch = msg.charAt(i++);
-            if (ch == '%') {
-                leadingSpace = false;
-                char ch2 = msg.charAt(i++);
-                if (ch2 == 'q') {
-                    String quote = toString(args[nextArg++]);
-                    if (useHTML) {
-                        sb.append("&laquo;<span class=\"q\">");
-                        sb.append(encodeAsHTML(quote));
-                        sb.append("</span>&raquo;");
-                    } else {
-                        sb.append("\"");
-                        sb.append(quote);
-                        sb.append("\"");
-                    }
-                } else if (ch2 == '%') {
-                    sb.append('%');
-                } else if (ch2 == 's') {
-                    String quote = toString(args[nextArg++]);
-                    sb.append(quote);
-                } else {
-                    // unrecognized format
-                }
-            } else if (ch == ' ' && leadingSpace) {
-                if (useHTML) {
-                    sb.append("&nbsp;");
-                } else {
-                    sb.append(ch);
-                }
-            } else {
-                leadingSpace = false;
-                if (useHTML) {
-                    sb.append(encodeAsHTML(ch));
-                } else {
-                    sb.append(ch);
-                }
-            }
-        }
-
-        String s = sb.toString();
-        return s;
+        return MessageTemplate.get(msg).render(useHTML, args);
     }
 
-    private static @NotNull String toString(@NotNull Object o)
-    {
-        String s = Extensions.getExtension(o, String.class);
-        if (s != null) {
-            return s;
-        }
-        s = o.toString();
-        return s != null ? s : "";
-    }
+    /**
+      Construct a message and append it to a string builder. The message is constructed as described by
+      {@link #constructMessage(boolean, String, Object[])}, but no intermediate strings are created.
+
+      @param useHTML If true, the message is in HTML. Otherwise, the message is plain text.
+      @param msg The basic plain text message.
+      @param args The arguments to include in the message.
+      @param sb The string builder that receives the message.
+      @throws IllegalArgumentException if {@code msg} ends with an incomplete marker.
+    */
 
-    private static @NotNull String encodeAsHTML(@NotNull String s)
+    public static void constructMessage(boolean useHTML,
+                                        @NotNull String msg,
+                                        @NotNull Object[] args,
+                                        @NotNull StringBuilder sb)
     {
-        if (s.isEmpty()) {
-            return "";
-        }
+        MessageTemplate.get(msg).renderTo(useHTML, sb, args);
+    }
 
-        StringBuilder sb = new StringBuilder();
-        int len = s.length();
+    /**
+      Construct a message and append it to the specified destination. The message is constructed as described by
+      {@link #constructMessage(boolean, String, Object[])}, but no intermediate strings are created.
 
-        boolean leadingSpace = true;
+      @param useHTML If true, the message is in HTML. Otherwise, the message is plain text.
+      @param msg The basic plain text message.
+      @param args The arguments to include in the message.
+      @param a The destination that receives the message.
+      @throws IOException if the destination throws IOException.
+      @throws IllegalArgumentException if {@code msg} ends with an incomplete marker.
+    */
 
-        for (int i = 0; i < len; i++) {
-            char ch = s.charAt(i);
+    public static void constructMessage(boolean useHTML,
+                                        @NotNull String msg,
+                                        @NotNull Object[] args,
+                                        @NotNull Appendable a)
+      throws IOException
+    {
+        MessageTemplate.get(msg).renderTo(useHTML, a, args);
+    }
 
-            if (leadingSpace) {
-                if (ch == ' ') {
-                    sb.append("&nbsp;");
-                    continue;
-                }
-                leadingSpace = false;
-            }
+    /**
+      Construct a message and write it to a writer. The message is constructed as described by
+      {@link #constructMessage(boolean, String, Object[])}, but no intermediate strings are created.
 
-            String rs = encodeAsHTML(ch);
-            sb.append(rs);
-        }
+      @param useHTML If true, the message is in HTML. Otherwise, the message is plain text.
+      @param msg The basic plain text message.
+      @param args The arguments to include in the message.
+      @param w The writer that receives the message.
+      @throws IORuntimeException if the writer fails.
+      @throws IllegalArgumentException if {@code msg} ends with an incomplete marker.
+    */
 
-        return sb.toString();
+    public static void constructMessage(boolean useHTML,
+                                        @NotNull String msg,
+                                        @NotNull Object[] args,
+                                        @NotNull VUWriter w)
+      throws IORuntimeException
+    {
+        MessageTemplate.get(msg).renderTo(useHTML, w, args);
     }
 
-    private static @NotNull String encodeAsHTML(char ch)
+    /* package private */ static @NotNull String toString(@NotNull Object o)
     {
-        int code = (int) ch;
-
-        if (isHTMLMetaCharacter(ch)) {
-            return "&#" + code + ";";
-        }
-
-        if (ch == '\n' || ch == '\r') {
-            return "\n";
+        if (o instanceof String) {
+            return (String) o;
         }
-
-        if (code < 32 || code >= 128) {
-            return "&#" + code + ";";
+        String s = Extensions.getExtension(o, String.class);
+        if (s != null) {
+            return s;
         }
-
-        return "" + ch;
-    }
-
-    private static boolean isHTMLMetaCharacter(char ch)
-    {
-        return ch == '<' || ch == '>' || ch == '&' || ch == '"';
+        s = o.toString();
+        return s != null ? s : "";
     }
 }
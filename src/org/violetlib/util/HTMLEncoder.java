@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.util;
+
+import java.io.IOException;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.annotations.NoInstances;
+
+/**
+  Encode plain text as HTML.
+  <p>
+  The characters {@code < > & "}, control characters, and non-ASCII characters are encoded as numeric character
+  references. Carriage returns are encoded as newlines. When an entire text is encoded, its leading spaces are encoded
+  as non-breaking spaces.
+  <p>
+  A lookup table identifies the ASCII characters that must be escaped. Runs of characters that need no escaping are
+  copied in bulk, and escapes are appended without allocating objects.
+*/
+
+public final @NoInstances class HTMLEncoder
+{
+    private HTMLEncoder()
+    {
+        throw new AssertionError("HTMLEncoder may not be instantiated");
+    }
+
+    // The replacement for each ASCII character, or null if the character is copied
+    private static final @Nullable String @NotNull [] REPLACEMENTS = createReplacements();
+
+    private static final @NotNull String NBSP = "&nbsp;";
+
+    /**
+      Encode a text as HTML.
+
+      @param s The plain text.
+      @return the HTML encoding of {@code s}.
+    */
+
+    public static @NotNull String encode(@NotNull String s)
+    {
+        if (s.isEmpty() || s.charAt(0) != ' ' && findEscape(s, 0, s.length()) < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(encodedLength(s));
+        encode(s, sb);
+        return sb.toString();
+    }
+
+    /**
+      Encode a text as HTML and append the encoding to a string builder.
+
+      @param s The plain text.
+      @param sb The string builder that receives the encoding.
+    */
+
+    public static void encode(@NotNull CharSequence s, @NotNull StringBuilder sb)
+    {
+        try {
+            encode(s, (Appendable) sb);
+        } catch (IOException ex) {
+            throw new AssertionError("Unexpected exception from StringBuilder", ex);
+        }
+    }
+
+    /**
+      Encode a text as HTML and append the encoding to the specified destination.
+
+      @param s The plain text.
+      @param a The destination that receives the encoding.
+      @throws IOException if the destination throws IOException.
+    */
+
+    public static void encode(@NotNull CharSequence s, @NotNull Appendable a)
+      throws IOException
+    {
+        int len = s.length();
+        int start = 0;
+        while (start < len && s.charAt(start) == ' ') {
+            a.append(NBSP);
+            start++;
+        }
+        escape(s, start, len, a);
+    }
+
+    /**
+      Encode a range of characters as HTML and append the encoding to a string builder. Leading spaces are not treated
+      specially.
+
+      @param s The plain text.
+      @param start The index of the first character to encode.
+      @param end The index following the last character to encode.
+      @param sb The string builder that receives the encoding.
+    */
+
+    public static void escape(@NotNull CharSequence s, int start, int end, @NotNull StringBuilder sb)
+    {
+        try {
+            escape(s, start, end, (Appendable) sb);
+        } catch (IOException ex) {
+            throw new AssertionError("Unexpected exception from StringBuilder", ex);
+        }
+    }
+
+    /**
+      Encode a range of characters as HTML and append the encoding to the specified destination. Leading spaces are
+      not treated specially.
+
+      @param s The plain text.
+      @param start The index of the first character to encode.
+      @param end The index following the last character to encode.
+      @param a The destination that receives the encoding.
+      @throws IOException if the destination throws IOException.
+    */
+
+    public static void escape(@NotNull CharSequence s, int start, int end, @NotNull Appendable a)
+      throws IOException
+    {
+        if (start < 0 || end > s.length() || start > end) {
+            throw new IndexOutOfBoundsException("Invalid range: " + start + "-" + end);
+        }
+
+        String[] replacements = REPLACEMENTS;
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            char ch = s.charAt(i);
+            String replacement;
+            if (ch < 128) {
+                replacement = replacements[ch];
+                if (replacement == null) {
+                    continue;
+                }
+            } else {
+                replacement = null;
+            }
+            if (runStart < i) {
+                a.append(s, runStart, i);
+            }
+            if (replacement != null) {
+                a.append(replacement);
+            } else {
+                appendCharacterReference(a, ch);
+            }
+            runStart = i + 1;
+        }
+        if (runStart < end) {
+            a.append(s, runStart, end);
+        }
+    }
+
+    /**
+      Return the length of the HTML encoding of a text.
+
+      @param s The plain text.
+      @return the length of the string that {@link #encode(String)} would return.
+    */
+
+    public static int encodedLength(@NotNull CharSequence s)
+    {
+        int len = s.length();
+        int length = 0;
+        int i = 0;
+        while (i < len && s.charAt(i) == ' ') {
+            length += NBSP.length();
+            i++;
+        }
+        String[] replacements = REPLACEMENTS;
+        for (; i < len; i++) {
+            char ch = s.charAt(i);
+            if (ch < 128) {
+                String replacement = replacements[ch];
+                length += replacement != null ? replacement.length() : 1;
+            } else {
+                length += ch < 1000 ? 6 : ch < 10000 ? 7 : 8;
+            }
+        }
+        return length;
+    }
+
+    private static int findEscape(@NotNull CharSequence s, int start, int end)
+    {
+        String[] replacements = REPLACEMENTS;
+        for (int i = start; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch >= 128 || replacements[ch] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void appendCharacterReference(@NotNull Appendable a, char ch)
+      throws IOException
+    {
+        int code = ch;
+        a.append('&');
+        a.append('#');
+        if (code >= 10000) {
+            a.append((char) ('0' + code / 10000));
+        }
+        if (code >= 1000) {
+            a.append((char) ('0' + code / 1000 % 10));
+        }
+        a.append((char) ('0' + code / 100 % 10));
+        a.append((char) ('0' + code / 10 % 10));
+        a.append((char) ('0' + code % 10));
+        a.append(';');
+    }
+
+    private static @Nullable String @NotNull [] createReplacements()
+    {
+        String[] replacements = new String[128];
+        for (int code = 0; code < 32; code++) {
+            replacements[code] = "&#" + code + ";";
+        }
+        replacements['\n'] = null;
+        replacements['\r'] = "\n";
+        replacements['<'] = "&#60;";
+        replacements['>'] = "&#62;";
+        replacements['&'] = "&#38;";
+        replacements['"'] = "&#34;";
+        return replacements;
+    }
+}
@@ -35,6 +35,16 @@ public interface MessageReporter
         return StringMessageReporter.create();
     }
 
+    /**
+      Return a message reporter that collects messages from concurrent threads in a String. Messages are separated by
+      newlines. Use the {@code messages} method to obtain the available messages.
+    */
+
+    static @NotNull ConcurrentMessageReporter concurrent()
+    {
+        return ConcurrentMessageReporter.create();
+    }
+
     /**
       Report information.
 
@@ -42,4 +52,30 @@ public interface MessageReporter
     */
 
     void info(@NotNull String message);
+
+    /**
+      Report information using a message whose construction is deferred until it is used.
+      <p>
+      The default implementation constructs the message and reports it using {@link #info(String)}. A reporter that
+      forwards messages should override this method to forward the message without constructing it.
+
+      @param message The message.
+    */
+
+    default void info(@NotNull FormattedMessage message)
+    {
+        info(message.toString());
+    }
+
+    /**
+      Indicate whether this reporter uses the information reported to it. If not, callers may avoid the cost of
+      constructing messages.
+
+      @return false if messages are discarded, true otherwise. The default implementation returns true.
+    */
+
+    default boolean isInfoEnabled()
+    {
+        return true;
+    }
 }
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.*;
+import org.violetlib.annotations.Immutable;
+import org.violetlib.io.VUWriter;
+import org.violetlib.types.IORuntimeException;
+
+/**
+  A compiled message template. A template is parsed once into literal segments and argument segments. The plain text
+  and HTML forms of each literal segment are computed when the template is compiled, so rendering a message only
+  converts the arguments and copies the segments into a buffer of the exact size needed. A message may also be
+  rendered directly into a caller-supplied string builder, {@link Appendable}, or {@link VUWriter}.
+  <p>
+  The template syntax is described by {@link FormattedMessageSupport#constructMessage}.
+*/
+
+public final @Immutable class MessageTemplate
+{
+    /**
+      Compile a template.
+
+      @param template The template, which may include format specifiers.
+      @return the compiled template.
+      @throws IllegalArgumentException if the template ends with an incomplete format specifier.
+    */
+
+    public static @NotNull MessageTemplate compile(@NotNull String template)
+      throws IllegalArgumentException
+    {
+        return new MessageTemplate(template);
+    }
+
+    /**
+      Obtain a compiled template. Compiled templates are cached. The cache is bounded; when it fills, it is cleared.
+
+      @param template The template, which may include format specifiers.
+      @return the compiled template.
+      @throws IllegalArgumentException if the template ends with an incomplete format specifier.
+    */
+
+    public static @NotNull MessageTemplate get(@NotNull String template)
+      throws IllegalArgumentException
+    {
+        MessageTemplate t = cache.get(template);
+        if (t == null) {
+            t = new MessageTemplate(template);
+            if (cache.size() >= CACHE_LIMIT) {
+                cache.clear();
+            }
+            cache.put(template, t);
+        }
+        return t;
+    }
+
+    private static final int CACHE_LIMIT = 4096;
+    private static final @NotNull ConcurrentHashMap<String,MessageTemplate> cache = new ConcurrentHashMap<>();
+
+    private static final byte LITERAL = 0;
+    private static final byte QUOTE = 1;
+    private static final byte COPY = 2;
+
+    private static final @NotNull String HTML_QUOTE_PREFIX = "&laquo;<span class=\"q\">";
+    private static final @NotNull String HTML_QUOTE_SUFFIX = "</span>&raquo;";
+
+    private final @NotNull String template;
+    private final byte @NotNull [] kinds;
+    private final @Nullable String @NotNull [] plainText;
+    private final @Nullable String @NotNull [] htmlText;
+    private final int argumentCount;
+    private final int plainLength;
+    private final int htmlLength;
+
+    private MessageTemplate(@NotNull String template)
+    {
+        this.template = template;
+
+        List<Byte> kindList = new ArrayList<>();
+        List<String> plainList = new ArrayList<>();
+        List<String> htmlList = new ArrayList<>();
+        StringBuilder plain = new StringBuilder();
+        StringBuilder html = new StringBuilder();
+        int arguments = 0;
+        boolean leadingSpace = true;
+        int length = template.length();
+
+        for (int i = 0; i < length; ) {
+            char ch = template.charAt(i++);
+            if (ch == '%') {
+                leadingSpace = false;
+                if (i >= length) {
+                    throw new IllegalArgumentException("Incomplete format specifier: " + template);
+                }
+                char ch2 = template.charAt(i++);
+                if (ch2 == 'q' || ch2 == 's') {
+                    if (plain.length() > 0) {
+                        kindList.add(LITERAL);
+                        plainList.add(plain.toString());
+                        htmlList.add(html.toString());
+                        plain.setLength(0);
+                        html.setLength(0);
+                    }
+                    kindList.add(ch2 == 'q' ? QUOTE : COPY);
+                    plainList.add(null);
+                    htmlList.add(null);
+                    arguments++;
+                } else if (ch2 == '%') {
+                    plain.append('%');
+                    html.append('%');
+                } else {
+                    // unrecognized format
+                }
+            } else if (ch == ' ' && leadingSpace) {
+                plain.append(ch);
+                html.append("&nbsp;");
+            } else {
+                leadingSpace = false;
+                plain.append(ch);
+                HTMLEncoder.escape(template, i - 1, i, html);
+            }
+        }
+        if (plain.length() > 0) {
+            kindList.add(LITERAL);
+            plainList.add(plain.toString());
+            htmlList.add(html.toString());
+        }
+
+        int count = kindList.size();
+        this.kinds = new byte[count];
+        for (int i = 0; i < count; i++) {
+            kinds[i] = kindList.get(i);
+        }
+        this.plainText = plainList.toArray(new String[0]);
+        this.htmlText = htmlList.toArray(new String[0]);
+        this.argumentCount = arguments;
+
+        int pl = 0;
+        int hl = 0;
+        for (int i = 0; i < count; i++) {
+            if (kinds[i] == LITERAL) {
+                String p = plainText[i];
+                String h = htmlText[i];
+                assert p != null && h != null;
+                pl += p.length();
+                hl += h.length();
+            }
+        }
+        this.plainLength = pl;
+        this.htmlLength = hl;
+    }
+
+    /**
+      Return the template from which this compiled template was created.
+    */
+
+    public @NotNull String getTemplate()
+    {
+        return template;
+    }
+
+    /**
+      Return the number of arguments used by this template.
+    */
+
+    public int getArgumentCount()
+    {
+        return argumentCount;
+    }
+
+    /**
+      Construct a message using this template.
+
+      @param useHTML If true, the returned message is in HTML. Otherwise, the returned message is plain text.
+      @param args The arguments, as described by {@link FormattedMessageSupport#constructMessage}.
+      @return the constructed message.
+    */
+
+    public @NotNull String render(boolean useHTML, @NotNull Object @NotNull ... args)
+    {
+        if (argumentCount == 0) {
+            return useHTML ? renderLiterals(htmlText, htmlLength) : renderLiterals(plainText, plainLength);
+        }
+
+        // Convert the arguments first, so that the exact length of the message is known
+        String[] values = new String[argumentCount];
+        int length = useHTML ? htmlLength : plainLength;
+        int nextArg = 0;
+        for (byte kind : kinds) {
+            if (kind != LITERAL) {
+                String value = FormattedMessageSupport.toString(args[nextArg]);
+                values[nextArg++] = value;
+                if (kind == COPY) {
+                    length += value.length();
+                } else if (useHTML) {
+                    length += HTML_QUOTE_PREFIX.length() + HTMLEncoder.encodedLength(value)
+                      + HTML_QUOTE_SUFFIX.length();
+                } else {
+                    length += value.length() + 2;
+                }
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        renderTo(useHTML, sb, (Object[]) values);
+        return sb.toString();
+    }
+
+    /**
+      Construct a message using this template and append it to a string builder.
+
+      @param useHTML If true, the message is in HTML. Otherwise, the message is plain text.
+      @param sb The string builder that receives the message.
+      @param args The arguments, as described by {@link FormattedMessageSupport#constructMessage}.
+    */
+
+    public void renderTo(boolean useHTML, @NotNull StringBuilder sb, @NotNull Object @NotNull ... args)
+    {
+        try {
+            renderTo(useHTML, (Appendable) sb, args);
+        } catch (IOException ex) {
+            throw new AssertionError("Unexpected exception from StringBuilder", ex);
+        }
+    }
+
+    /**
+      Construct a message using this template and write it to a writer.
+
+      @param useHTML If true, the message is in HTML. Otherwise, the message is plain text.
+      @param w The writer that receives the message.
+      @param args The arguments, as described by {@link FormattedMessageSupport#constructMessage}.
+      @throws IORuntimeException if the writer fails.
+    */
+
+    public void renderTo(boolean useHTML, @NotNull VUWriter w, @NotNull Object @NotNull ... args)
+      throws IORuntimeException
+    {
+        try {
+            renderTo(useHTML, w.asWriter(), args);
+        } catch (IOException ex) {
+            throw IORuntimeException.create(ex);
+        }
+    }
+
+    /**
+      Construct a message using this template and append it to the specified destination.
+
+      @param useHTML If true, the message is in HTML. Otherwise, the message is plain text.
+      @param a The destination that receives the message.
+      @param args The arguments, as described by {@link FormattedMessageSupport#constructMessage}.
+      @throws IOException if the destination throws IOException.
+    */
+
+    public void renderTo(boolean useHTML, @NotNull Appendable a, @NotNull Object @NotNull ... args)
+      throws IOException
+    {
+        String[] literals = useHTML ? htmlText : plainText;
+        int nextArg = 0;
+        int count = kinds.length;
+        for (int i = 0; i < count; i++) {
+            byte kind = kinds[i];
+            if (kind == LITERAL) {
+                a.append(literals[i]);
+            } else {
+                String value = FormattedMessageSupport.toString(args[nextArg++]);
+                if (kind == COPY) {
+                    a.append(value);
+                } else if (useHTML) {
+                    a.append(HTML_QUOTE_PREFIX);
+                    HTMLEncoder.encode(value, a);
+                    a.append(HTML_QUOTE_SUFFIX);
+                } else {
+                    a.append('"');
+                    a.append(value);
+                    a.append('"');
+                }
+            }
+        }
+    }
+
+    private static @NotNull String renderLiterals(@Nullable String @NotNull [] literals, int length)
+    {
+        if (literals.length == 0) {
+            return "";
+        }
+        if (literals.length == 1) {
+            String s = literals[0];
+            assert s != null;
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (String s : literals) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public @NotNull String toString()
+    {
+        return template;
+    }
+}
@@ -34,13 +34,46 @@ public final @Immutable class NullReporter
     {
     }
 
+    @Override
+    public void warning(@NotNull FormattedMessage message)
+    {
+    }
+
+    @Override
+    public boolean isWarningEnabled()
+    {
+        return false;
+    }
+
     @Override
     public void error(@NotNull String message)
     {
     }
 
+    @Override
+    public void error(@NotNull FormattedMessage message)
+    {
+    }
+
+    @Override
+    public boolean isErrorEnabled()
+    {
+        return false;
+    }
+
     @Override
     public void info(@NotNull String message)
     {
     }
+
+    @Override
+    public void info(@NotNull FormattedMessage message)
+    {
+    }
+
+    @Override
+    public boolean isInfoEnabled()
+    {
+        return false;
+    }
 }
@@ -39,6 +39,8 @@ public interface SimpleReporter
 
     default void formattedInfo(@NotNull String message, @NotNull Object... args)
     {
-        info(FormattedMessageSupport.constructMessage(false, message, args));
+        if (isInfoEnabled()) {
+            info(FormattedMessage.create(message, args));
+        }
     }
 }